@@ -11,6 +11,10 @@ public class Main {
             UpdateUtil.manageWindows();
             ConfigUtil.load();
             AniUtil.load();
+            RssUtil.load();
+            SeenUtil.load();
+            HistoryUtil.load();
+            MyBangumiUtil.load();
             TaskUtil.start();
             String version = MavenUtil.getVersion();
             log.info("version {}", version);
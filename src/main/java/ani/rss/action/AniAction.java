@@ -8,7 +8,12 @@ import ani.rss.entity.Item;
 import ani.rss.task.RssTask;
 import ani.rss.util.AniUtil;
 import ani.rss.util.ConfigUtil;
+import ani.rss.util.DownloadQueueUtil;
 import ani.rss.util.ExceptionUtil;
+import ani.rss.util.FilterEngine;
+import ani.rss.util.HistoryUtil;
+import ani.rss.util.RssUtil;
+import ani.rss.util.SeenUtil;
 import ani.rss.util.TorrentUtil;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
@@ -71,7 +76,12 @@ public class AniAction implements BaseAction {
         ThreadUtil.execute(() -> {
             try {
                 if (TorrentUtil.login()) {
+                    // 手动刷新, 不使用条件请求
+                    RssUtil.remove(downloadAni);
                     TorrentUtil.downloadAni(downloadAni);
+                    TorrentUtil.downloadQueue();
+                    RssUtil.sync();
+                    SeenUtil.sync();
                 }
             } catch (Exception e) {
                 String message = ExceptionUtil.getMessage(e);
@@ -117,7 +127,9 @@ public class AniAction implements BaseAction {
         AniUtil.sync();
         ThreadUtil.execute(() -> {
             if (TorrentUtil.login()) {
-                TorrentUtil.downloadAni(ani);
+                TorrentUtil.downloadAni(ani, items);
+                TorrentUtil.downloadQueue();
+                SeenUtil.sync();
             }
         });
         resultSuccessMsg("添加订阅成功");
@@ -149,6 +161,8 @@ public class AniAction implements BaseAction {
             return;
         }
         BeanUtil.copyProperties(ani, first.get());
+        FilterEngine.remove(ani);
+        RssUtil.remove(ani);
         AniUtil.sync();
         resultSuccessMsg("修改成功");
         log.info("修改订阅 {} {} {}", ani.getTitle(), ani.getUrl(), ani.getId());
@@ -206,10 +220,40 @@ public class AniAction implements BaseAction {
         for (Ani ani : anis) {
             File torrentDir = TorrentUtil.getTorrentDir(ani);
             FileUtil.del(torrentDir);
+            FilterEngine.remove(ani);
+            RssUtil.remove(ani);
+            SeenUtil.remove(ani);
+            DownloadQueueUtil.remove(ani);
             log.info("删除订阅 {} {} {}", ani.getTitle(), ani.getUrl(), ani.getId());
         }
     }
 
+    /**
+     * 重置订阅已处理的条目, 下次刷新时重新检查所有条目
+     */
+    private void resetSeen() {
+        JsonArray jsonArray = getBody(JsonArray.class);
+        List<String> ids = jsonArray.asList()
+                .stream().map(JsonElement::getAsString)
+                .collect(Collectors.toList());
+        List<Ani> anis = AniUtil.ANI_LIST.stream()
+                .filter(it -> ids.contains(it.getId()))
+                .collect(Collectors.toList());
+        if (anis.isEmpty()) {
+            resultErrorMsg("重置失败");
+            return;
+        }
+        for (Ani ani : anis) {
+            SeenUtil.remove(ani);
+            RssUtil.remove(ani);
+            HistoryUtil.remove(ani);
+            log.info("重置已处理的条目 {} {}", ani.getTitle(), ani.getId());
+        }
+        SeenUtil.sync();
+        RssUtil.sync();
+        resultSuccessMsg("重置成功");
+    }
+
     @Override
     public void doAction(HttpServerRequest req, HttpServerResponse res) {
         String method = req.getMethod();
@@ -218,6 +262,10 @@ public class AniAction implements BaseAction {
             download();
             return;
         }
+        if (Boolean.parseBoolean(req.getParam("resetSeen"))) {
+            resetSeen();
+            return;
+        }
 
         switch (method) {
             case "POST": {
@@ -5,6 +5,8 @@ import ani.rss.annotation.Path;
 import ani.rss.entity.Config;
 import ani.rss.entity.Login;
 import ani.rss.util.ConfigUtil;
+import ani.rss.util.FilterEngine;
+import ani.rss.util.RssUtil;
 import ani.rss.util.TaskUtil;
 import ani.rss.util.TorrentUtil;
 import cn.hutool.core.bean.BeanUtil;
@@ -88,6 +90,9 @@ public class ConfigAction implements BaseAction {
         config.setTelegramApiHost(telegramApiHost);
 
         ConfigUtil.sync();
+        // 全局排除可能发生改变
+        FilterEngine.clear();
+        RssUtil.clear();
         Integer newRenameSleep = config.getRenameSleep();
         Integer newSleep = config.getSleep();
 
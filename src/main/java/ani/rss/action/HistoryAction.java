@@ -0,0 +1,39 @@
+package ani.rss.action;
+
+import ani.rss.annotation.Auth;
+import ani.rss.annotation.Path;
+import ani.rss.util.HistoryUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.server.HttpServerRequest;
+import cn.hutool.http.server.HttpServerResponse;
+
+import java.io.IOException;
+
+/**
+ * 下载记录
+ */
+@Auth
+@Path("/history")
+public class HistoryAction implements BaseAction {
+    @Override
+    public void doAction(HttpServerRequest request, HttpServerResponse response) throws IOException {
+        String aniId = request.getParam("aniId");
+        Long start = getTime(request.getParam("start"));
+        Long end = getTime(request.getParam("end"));
+        resultSuccess(HistoryUtil.list(aniId, start, end));
+    }
+
+    /**
+     * 毫秒时间戳, 为空或格式错误时不限制
+     *
+     * @param s
+     * @return
+     */
+    private static Long getTime(String s) {
+        if (StrUtil.isBlank(s) || !NumberUtil.isLong(s)) {
+            return null;
+        }
+        return Long.parseLong(s);
+    }
+}
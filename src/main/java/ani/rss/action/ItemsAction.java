@@ -5,11 +5,11 @@ import ani.rss.annotation.Path;
 import ani.rss.entity.Ani;
 import ani.rss.entity.Item;
 import ani.rss.util.AniUtil;
+import ani.rss.util.HistoryUtil;
 import ani.rss.util.TorrentUtil;
 import cn.hutool.http.server.HttpServerRequest;
 import cn.hutool.http.server.HttpServerResponse;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
@@ -27,8 +27,7 @@ public class ItemsAction implements BaseAction {
 
         for (Item item : items) {
             item.setLocal(false);
-            File torrent = TorrentUtil.getTorrent(ani, item);
-            if (torrent.exists()) {
+            if (HistoryUtil.downloaded(item.getInfoHash())) {
                 item.setLocal(true);
                 continue;
             }
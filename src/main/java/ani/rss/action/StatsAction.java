@@ -0,0 +1,35 @@
+package ani.rss.action;
+
+import ani.rss.annotation.Auth;
+import ani.rss.annotation.Path;
+import ani.rss.util.DownloadQueueUtil;
+import ani.rss.util.RssUtil;
+import ani.rss.util.VerifyUtil;
+import cn.hutool.http.server.HttpServerRequest;
+import cn.hutool.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 运行统计
+ */
+@Auth
+@Path("/stats")
+public class StatsAction implements BaseAction {
+    @Override
+    public void doAction(HttpServerRequest request, HttpServerResponse response) throws IOException {
+        resultSuccess(Map.of(
+                "rss", Map.of(
+                        "hit", RssUtil.HIT.get(),
+                        "unchanged", RssUtil.UNCHANGED.get(),
+                        "miss", RssUtil.MISS.get(),
+                        "error", RssUtil.ERROR.get(),
+                        "skip", RssUtil.SKIP.get(),
+                        "shared", RssUtil.SHARED.get()
+                ),
+                "verify", VerifyUtil.size(),
+                "queue", DownloadQueueUtil.stats()
+        ));
+    }
+}
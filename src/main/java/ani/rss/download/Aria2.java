@@ -2,27 +2,54 @@ package ani.rss.download;
 
 import ani.rss.entity.Config;
 import ani.rss.entity.TorrentsInfo;
+import ani.rss.util.ExceptionUtil;
 import ani.rss.util.HttpReq;
+import ani.rss.util.JsonReaderUtil;
+import ani.rss.util.TorrentSnapshot;
+import ani.rss.util.TorrentUtil;
 import cn.hutool.core.codec.Base64;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IORuntimeException;
 import cn.hutool.core.io.resource.ResourceUtil;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HttpRequest;
 import cn.hutool.http.HttpResponse;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class Aria2 implements BaseDownload {
-    private Config config;
+    private volatile Config config;
+
+    /**
+     * 已验证过的连接设置, 为空表示未登录
+     */
+    private volatile String loginKey = "";
+
+    /**
+     * 下载完成的通知
+     */
+    private final Aria2WebSocket webSocket = new Aria2WebSocket(this::onComplete);
+
+    /**
+     * 依次处理下载完成的任务
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(ThreadUtil.newNamedThreadFactory("aria2-event-", true));
 
     @Override
     public Boolean login(Config config) {
@@ -35,72 +62,318 @@ public class Aria2 implements BaseDownload {
             return false;
         }
 
+        String key = String.join("\n", host, password);
+        if (key.equals(loginKey)) {
+            return true;
+        }
+
         String body = ResourceUtil.readUtf8Str("aria2/getGlobalStat.json");
         body = StrFormatter.format(body, password);
-        return HttpReq.post(host + "/jsonrpc", false)
+        Boolean ok = HttpReq.post(host + "/jsonrpc", false)
                 .body(body)
                 .thenFunction(HttpResponse::isOk);
+        if (ok) {
+            loginKey = key;
+        }
+        return ok;
+    }
+
+    @Override
+    public void logout() {
+        loginKey = "";
+        webSocket.close();
+    }
+
+    @Override
+    public void listen() {
+        webSocket.connect(config.getHost());
+    }
+
+    @Override
+    public Boolean isListening() {
+        return webSocket.isConnected();
+    }
+
+    /**
+     * 收到下载完成的通知后立即重命名, 做种完成时删除
+     *
+     * @param gid
+     */
+    private void onComplete(String gid) {
+        executor.execute(() -> {
+            try {
+                TorrentsInfo torrentsInfo = tellStatus(gid);
+                if (Objects.isNull(torrentsInfo)) {
+                    return;
+                }
+                log.debug("Aria2 下载完成 {} {}", gid, torrentsInfo.getName());
+                TorrentSnapshot.invalidate();
+                TorrentUtil.rename(torrentsInfo);
+                TorrentUtil.delete(torrentsInfo);
+                TorrentUtil.downloadQueue();
+            } catch (Exception e) {
+                String message = ExceptionUtil.getMessage(e);
+                log.error(message);
+                log.debug(message, e);
+            }
+        });
+    }
+
+    /**
+     * 获取单个任务
+     *
+     * @param gid
+     * @return 非 bt 任务时为 null
+     */
+    private TorrentsInfo tellStatus(String gid) {
+        String host = config.getHost();
+        String password = config.getPassword();
+        String body = ResourceUtil.readUtf8Str("aria2/tellStatus.json");
+        body = StrFormatter.format(body, password, gid);
+        HttpRequest httpRequest = HttpReq.post(host + "/jsonrpc", false)
+                .body(body);
+        return relogin(config, () -> HttpReq.thenReader(httpRequest, (res, reader) -> {
+            checkLogin(res);
+            try {
+                List<TorrentsInfo> torrentsInfos = readResult(new JsonReader(reader));
+                return torrentsInfos.isEmpty() ? null : torrentsInfos.get(0);
+            } catch (IOException e) {
+                throw new IORuntimeException(e);
+            }
+        }));
     }
 
     @Override
     public List<TorrentsInfo> getTorrentsInfos() {
-        List<TorrentsInfo> torrentsInfos = new ArrayList<>();
-        ThreadUtil.sleep(1000);
-        torrentsInfos.addAll(getTorrentsInfos("aria2/tellActive.json"));
-        torrentsInfos.addAll(getTorrentsInfos("aria2/tellStopped.json"));
-        return torrentsInfos;
+        return relogin(config, this::doGetTorrentsInfos);
     }
 
-    public List<TorrentsInfo> getTorrentsInfos(String type) {
+    /**
+     * 密钥错误时 Aria2 返回 Unauthorized
+     *
+     * @param jsonObject
+     */
+    private void checkLogin(JsonObject jsonObject) {
+        JsonElement error = jsonObject.get("error");
+        if (Objects.isNull(error) || !error.isJsonObject()) {
+            return;
+        }
+        JsonElement message = error.getAsJsonObject().get("message");
+        if (Objects.nonNull(message) && "Unauthorized".equals(message.getAsString())) {
+            throw new LoginException("登录已失效 Unauthorized");
+        }
+    }
+
+    /**
+     * 一次 system.multicall 获取 tellActive / tellWaiting / tellStopped
+     *
+     * @return
+     */
+    private List<TorrentsInfo> doGetTorrentsInfos() {
         String host = config.getHost();
         String password = config.getPassword();
-        String body = ResourceUtil.readUtf8Str(type);
-        body = StrFormatter.format(body, password);
-        return HttpReq.post(host + "/jsonrpc", false)
-                .body(body)
-                .thenFunction(res -> {
-                    JsonObject jsonObject = gson.fromJson(res.body(), JsonObject.class);
-                    List<JsonElement> result = jsonObject.get("result").getAsJsonArray().asList();
-                    List<TorrentsInfo> torrentsInfos = new ArrayList<>();
-                    for (JsonElement jsonElement : result) {
-                        JsonObject asJsonObject = jsonElement.getAsJsonObject();
-                        JsonElement bittorrent = asJsonObject.get("bittorrent");
-                        if (bittorrent.isJsonNull()) {
-                            continue;
+        String body = ResourceUtil.readUtf8Str("aria2/tellAll.json");
+        body = StrFormatter.format(body, password, password, password);
+        HttpRequest httpRequest = HttpReq.post(host + "/jsonrpc", false)
+                .body(body);
+        return HttpReq.thenReader(httpRequest, (res, reader) -> {
+            checkLogin(res);
+            try {
+                return readMulticall(new JsonReader(reader));
+            } catch (IOException e) {
+                throw new IORuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * 流式读取 tellActive / tellWaiting / tellStopped / tellStatus 的结果, 跳过非 bt 任务
+     *
+     * @param reader
+     * @return
+     * @throws IOException
+     */
+    public static List<TorrentsInfo> readResult(JsonReader reader) throws IOException {
+        List<TorrentsInfo> torrentsInfos = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "result":
+                    readTorrents(reader, torrentsInfos);
+                    break;
+                case "error":
+                    throwError(readErrorMessage(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return torrentsInfos;
+    }
+
+    /**
+     * 流式读取 system.multicall 的结果, 合并每个调用返回的任务
+     * <p>
+     * 成功的调用结果为 [result], 失败为 {"code": 1, "message": "..."}
+     *
+     * @param reader
+     * @return
+     * @throws IOException
+     */
+    public static List<TorrentsInfo> readMulticall(JsonReader reader) throws IOException {
+        List<TorrentsInfo> torrentsInfos = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "result":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                            throwError(readErrorMessage(reader));
                         }
-                        JsonElement info = bittorrent.getAsJsonObject()
-                                .get("info");
-                        if (Objects.isNull(info)) {
-                            continue;
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            readTorrents(reader, torrentsInfos);
                         }
-                        String name = info.getAsJsonObject()
-                                .get("name").getAsString();
-                        String infoHash = asJsonObject.get("infoHash").getAsString();
-                        String status = asJsonObject.get("status").getAsString();
-                        TorrentsInfo.State state = "complete".equals(status) ?
-                                TorrentsInfo.State.pausedUP : TorrentsInfo.State.downloading;
-                        String dir = asJsonObject.get("dir").getAsString();
-                        String gid = asJsonObject.get("gid").getAsString();
-
-                        List<String> files = asJsonObject.get("files")
-                                .getAsJsonArray()
-                                .asList()
-                                .stream().map(JsonElement::getAsJsonObject)
-                                .map(o -> o.get("path").getAsString())
-                                .collect(Collectors.toList());
-
-                        TorrentsInfo torrentsInfo = new TorrentsInfo();
-                        torrentsInfo
-                                .setId(gid)
-                                .setName(name)
-                                .setHash(infoHash)
-                                .setState(state)
-                                .setDownloadDir(dir)
-                                .setFiles(files);
-                        torrentsInfos.add(torrentsInfo);
+                        reader.endArray();
                     }
-                    return torrentsInfos;
-                });
+                    reader.endArray();
+                    break;
+                case "error":
+                    throwError(readErrorMessage(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return torrentsInfos;
+    }
+
+    /**
+     * 读取单个任务 (tellStatus) 或任务数组
+     *
+     * @param reader
+     * @param torrentsInfos
+     * @throws IOException
+     */
+    private static void readTorrents(JsonReader reader, List<TorrentsInfo> torrentsInfos) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_OBJECT) {
+            TorrentsInfo torrentsInfo = readTorrent(reader);
+            if (Objects.nonNull(torrentsInfo)) {
+                torrentsInfos.add(torrentsInfo);
+            }
+            return;
+        }
+        if (token != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            TorrentsInfo torrentsInfo = readTorrent(reader);
+            if (Objects.nonNull(torrentsInfo)) {
+                torrentsInfos.add(torrentsInfo);
+            }
+        }
+        reader.endArray();
+    }
+
+    private static void throwError(String message) {
+        if ("Unauthorized".equals(message)) {
+            throw new LoginException("登录已失效 Unauthorized");
+        }
+        throw new RuntimeException(message);
+    }
+
+    /**
+     * @param reader
+     * @return 非 bt 任务时为 null
+     * @throws IOException
+     */
+    private static TorrentsInfo readTorrent(JsonReader reader) throws IOException {
+        TorrentsInfo torrentsInfo = new TorrentsInfo();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "gid":
+                    torrentsInfo.setId(JsonReaderUtil.nextString(reader));
+                    break;
+                case "status":
+                    TorrentsInfo.State state = "complete".equals(JsonReaderUtil.nextString(reader)) ?
+                            TorrentsInfo.State.pausedUP : TorrentsInfo.State.downloading;
+                    torrentsInfo.setState(state);
+                    break;
+                case "bittorrent":
+                    torrentsInfo.setName(readName(reader));
+                    break;
+                case "infoHash":
+                    torrentsInfo.setHash(JsonReaderUtil.nextString(reader));
+                    break;
+                case "dir":
+                    torrentsInfo.setDownloadDir(JsonReaderUtil.nextIntern(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (Objects.isNull(torrentsInfo.getName())) {
+            return null;
+        }
+        return torrentsInfo;
+    }
+
+    /**
+     * 读取 bittorrent.info.name
+     *
+     * @param reader
+     * @return
+     * @throws IOException
+     */
+    private static String readName(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        String name = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"info".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("name".equals(reader.nextName())) {
+                    name = JsonReaderUtil.nextString(reader);
+                    continue;
+                }
+                reader.skipValue();
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return name;
+    }
+
+    private static String readErrorMessage(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return JsonReaderUtil.nextString(reader);
+        }
+        String message = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("message".equals(reader.nextName())) {
+                message = JsonReaderUtil.nextString(reader);
+                continue;
+            }
+            reader.skipValue();
+        }
+        reader.endObject();
+        return message;
     }
 
 
@@ -123,46 +396,97 @@ public class Aria2 implements BaseDownload {
             body = StrFormatter.format(body, password, Base64.encode(torrentFile), savePath);
         }
 
-        String id = HttpReq.post(host + "/jsonrpc", false)
-                .body(body)
-                .thenFunction(res -> gson.fromJson(res.body(), JsonObject.class).get("result").getAsString());
+        HttpRequest httpRequest = HttpReq.post(host + "/jsonrpc", false)
+                .body(body);
+        String id = relogin(config, () -> httpRequest.thenFunction(res -> {
+            checkLogin(res);
+            JsonObject jsonObject = gson.fromJson(res.body(), JsonObject.class);
+            checkLogin(jsonObject);
+            return jsonObject.get("result").getAsString();
+        }));
 
-        Boolean watchErrorTorrent = config.getWatchErrorTorrent();
+        if (!ova && !"txt".equals(extName)) {
+            renameCache.put(id, name);
+        }
+        return true;
+    }
 
-        if (!watchErrorTorrent) {
-            if (!ova && !"txt".equals(extName)) {
-                renameCache.put(id, name);
-            }
-            return true;
+    @Override
+    public void delete(TorrentsInfo torrentsInfo) {
+        delete(List.of(torrentsInfo));
+    }
+
+    /**
+     * 一次 system.multicall 删除多个已完成任务
+     *
+     * @param torrentsInfos
+     */
+    @Override
+    public void delete(List<TorrentsInfo> torrentsInfos) {
+        if (torrentsInfos.isEmpty()) {
+            return;
+        }
+        String host = config.getHost();
+        String password = config.getPassword();
+        JsonArray calls = new JsonArray();
+        for (TorrentsInfo torrentsInfo : torrentsInfos) {
+            JsonArray params = new JsonArray();
+            params.add("token:" + password);
+            params.add(torrentsInfo.getId());
+            JsonObject call = new JsonObject();
+            call.addProperty("methodName", "aria2.removeDownloadResult");
+            call.add("params", params);
+            calls.add(call);
         }
+        String body = ResourceUtil.readUtf8Str("aria2/multicall.json");
+        body = StrFormatter.format(body, gson.toJson(calls));
 
-        for (int i = 0; i < 10; i++) {
-            ThreadUtil.sleep(2000);
-            List<TorrentsInfo> torrentsInfos = getTorrentsInfos();
-            for (TorrentsInfo torrentsInfo : torrentsInfos) {
-                if (!torrentsInfo.getId().equals(id)) {
+        HttpRequest httpRequest = HttpReq.post(host + "/jsonrpc", false)
+                .body(body);
+        relogin(config, () -> httpRequest.thenFunction(res -> {
+            checkLogin(res);
+            JsonObject jsonObject = gson.fromJson(res.body(), JsonObject.class);
+            checkLogin(jsonObject);
+            List<JsonElement> result = jsonObject.get("result").getAsJsonArray().asList();
+            for (int i = 0; i < result.size(); i++) {
+                JsonElement jsonElement = result.get(i);
+                if (!jsonElement.isJsonObject()) {
                     continue;
                 }
-                if (!ova && "txt".equals(extName)) {
-                    renameCache.put(id, name);
-                }
-                return true;
+                // 单个调用失败
+                JsonObject error = new JsonObject();
+                error.add("error", jsonElement);
+                checkLogin(error);
+                log.warn("删除任务失败 {} {}", torrentsInfos.get(i).getName(), jsonElement.getAsJsonObject().get("message"));
             }
-        }
-        return false;
+            return res.isOk();
+        }));
     }
 
-    @Override
-    public void delete(TorrentsInfo torrentsInfo) {
+    /**
+     * 获取任务的文件列表, 只在需要重命名时获取
+     *
+     * @param gid
+     * @return
+     */
+    private List<String> getFiles(String gid) {
         String host = config.getHost();
         String password = config.getPassword();
-        String id = torrentsInfo.getId();
-        String body = ResourceUtil.readUtf8Str("aria2/removeDownloadResult.json");
-        body = StrFormatter.format(body, password, id);
-
-        HttpReq.post(host + "/jsonrpc", false)
-                .body(body)
-                .thenFunction(HttpResponse::isOk);
+        String body = ResourceUtil.readUtf8Str("aria2/getFiles.json");
+        body = StrFormatter.format(body, password, gid);
+        HttpRequest httpRequest = HttpReq.post(host + "/jsonrpc", false)
+                .body(body);
+        return relogin(config, () -> HttpReq.thenReader(httpRequest, (res, reader) -> {
+            checkLogin(res);
+            JsonObject jsonObject = gson.fromJson(reader, JsonObject.class);
+            checkLogin(jsonObject);
+            return jsonObject.get("result")
+                    .getAsJsonArray()
+                    .asList()
+                    .stream().map(JsonElement::getAsJsonObject)
+                    .map(o -> o.get("path").getAsString())
+                    .collect(Collectors.toList());
+        }));
     }
 
     @Override
@@ -173,7 +497,7 @@ public class Aria2 implements BaseDownload {
         if (StrUtil.isBlank(reName)) {
             return;
         }
-        List<String> files = torrentsInfo.getFiles();
+        List<String> files = getFiles(id);
         for (String file : files) {
             File src = new File(file);
             if (!src.exists()) {
@@ -0,0 +1,195 @@
+package ani.rss.download;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.ReUtil;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Aria2 WebSocket rpc, 接收下载完成的通知
+ * <p>
+ * 连接断开后不会自动重连, 由 {@link #connect(String)} 再次调用时重连, 失败后至少间隔 1 分钟
+ */
+@Slf4j
+public class Aria2WebSocket implements WebSocket.Listener {
+
+    private static final Gson GSON = new Gson();
+
+    /**
+     * 连接失败后的重试间隔
+     */
+    private static final long RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * 需要处理的通知
+     */
+    private static final List<String> METHODS = List.of("aria2.onDownloadComplete", "aria2.onBtDownloadComplete");
+
+    /**
+     * 收到通知时以 gid 调用
+     */
+    private final Consumer<String> consumer;
+
+    private final StringBuilder text = new StringBuilder();
+
+    private volatile CompletableFuture<WebSocket> future;
+
+    private volatile WebSocket webSocket;
+
+    private volatile String uri = "";
+
+    private volatile long retryTime = 0;
+
+    public Aria2WebSocket(Consumer<String> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * 连接, 已连接或正在连接时直接返回
+     *
+     * @param host Aria2 地址, 如 http://127.0.0.1:6800
+     */
+    public synchronized void connect(String host) {
+        String newUri = ReUtil.replaceAll(host, "^http", "ws") + "/jsonrpc";
+        if (Objects.nonNull(future) && newUri.equals(uri)) {
+            return;
+        }
+        close();
+        if (System.currentTimeMillis() < retryTime) {
+            return;
+        }
+        uri = newUri;
+        CompletableFuture<WebSocket> newFuture = HttpClient.newHttpClient()
+                .newWebSocketBuilder()
+                .connectTimeout(Duration.ofSeconds(6))
+                .buildAsync(URI.create(newUri), this);
+        future = newFuture;
+        newFuture.whenComplete((ws, e) -> connected(newFuture, ws, e));
+    }
+
+    private synchronized void connected(CompletableFuture<WebSocket> connectFuture, WebSocket ws, Throwable e) {
+        if (future != connectFuture) {
+            // 连接期间已关闭
+            if (Objects.nonNull(ws)) {
+                ws.abort();
+            }
+            return;
+        }
+        if (Objects.nonNull(e)) {
+            log.debug("Aria2 WebSocket 连接失败 {} {}", uri, ExceptionUtil.getRootCauseMessage(e));
+            reset();
+            return;
+        }
+        if (ws.isInputClosed()) {
+            reset();
+            return;
+        }
+        webSocket = ws;
+        log.info("Aria2 WebSocket 已连接 {}", uri);
+    }
+
+    /**
+     * 是否已连接
+     *
+     * @return
+     */
+    public Boolean isConnected() {
+        return Objects.nonNull(webSocket);
+    }
+
+    public synchronized void close() {
+        WebSocket oldWebSocket = webSocket;
+        future = null;
+        webSocket = null;
+        uri = "";
+        if (Objects.nonNull(oldWebSocket)) {
+            oldWebSocket.sendClose(WebSocket.NORMAL_CLOSURE, "");
+        }
+    }
+
+    private synchronized void disconnected(WebSocket ws) {
+        if (webSocket != ws) {
+            return;
+        }
+        reset();
+    }
+
+    private void reset() {
+        future = null;
+        webSocket = null;
+        uri = "";
+        retryTime = System.currentTimeMillis() + RETRY_INTERVAL;
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        text.append(data);
+        if (last) {
+            String message = text.toString();
+            text.setLength(0);
+            try {
+                onMessage(message);
+            } catch (Exception e) {
+                log.error("Aria2 WebSocket 通知处理失败 {}", ExceptionUtil.getRootCauseMessage(e));
+            }
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    /**
+     * {"jsonrpc":"2.0","method":"aria2.onDownloadComplete","params":[{"gid":"..."}]}
+     *
+     * @param message
+     */
+    private void onMessage(String message) {
+        JsonObject jsonObject = GSON.fromJson(message, JsonObject.class);
+        JsonElement method = jsonObject.get("method");
+        if (Objects.isNull(method) || !METHODS.contains(method.getAsString())) {
+            return;
+        }
+        JsonElement params = jsonObject.get("params");
+        if (Objects.isNull(params) || !params.isJsonArray()) {
+            return;
+        }
+        JsonArray jsonArray = params.getAsJsonArray();
+        for (JsonElement jsonElement : jsonArray) {
+            JsonElement gid = jsonElement.getAsJsonObject().get("gid");
+            if (Objects.nonNull(gid)) {
+                consumer.accept(gid.getAsString());
+            }
+        }
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        log.info("Aria2 WebSocket 已断开 {} {}", statusCode, reason);
+        disconnected(webSocket);
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        log.warn("Aria2 WebSocket 出错 {}", ExceptionUtil.getRootCauseMessage(error));
+        disconnected(webSocket);
+    }
+}
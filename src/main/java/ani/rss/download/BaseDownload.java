@@ -6,11 +6,16 @@ import cn.hutool.cache.Cache;
 import cn.hutool.cache.CacheUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HttpResponse;
+import cn.hutool.http.HttpStatus;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import java.io.File;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public interface BaseDownload {
     Gson gson = new GsonBuilder()
@@ -26,12 +31,65 @@ public interface BaseDownload {
     List<String> subtitleFormat = List.of("ass", "ssa", "sub", "srt", "lyc");
 
     /**
-     * 登录
+     * 登录, 已登录且连接设置未改变时直接返回
      *
      * @return
      */
     Boolean login(Config config);
 
+    /**
+     * 清除登录状态, 下次调用 {@link #login(Config)} 时重新登录
+     */
+    default void logout() {
+    }
+
+    /**
+     * 开始接收下载工具推送的事件, 不支持时不做处理
+     */
+    default void listen() {
+    }
+
+    /**
+     * 是否正在接收下载工具推送的事件, 此时任务列表只需低频检查
+     *
+     * @return
+     */
+    default Boolean isListening() {
+        return false;
+    }
+
+    /**
+     * 执行请求, 登录失效时重新登录后重试一次
+     *
+     * @param config
+     * @param supplier
+     * @param <T>
+     * @return
+     */
+    default <T> T relogin(Config config, Supplier<T> supplier) {
+        try {
+            return supplier.get();
+        } catch (LoginException e) {
+            logout();
+            if (!login(config)) {
+                throw e;
+            }
+            return supplier.get();
+        }
+    }
+
+    /**
+     * 响应为 401 或 403 时视为登录失效
+     *
+     * @param res
+     */
+    default void checkLogin(HttpResponse res) {
+        int status = res.getStatus();
+        if (status == HttpStatus.HTTP_UNAUTHORIZED || status == HttpStatus.HTTP_FORBIDDEN) {
+            throw new LoginException("登录已失效 status: " + status);
+        }
+    }
+
     /**
      * 获取任务列表
      *
@@ -48,6 +106,20 @@ public interface BaseDownload {
      */
     Boolean download(String name, String savePath, File torrentFile, Boolean ova);
 
+    /**
+     * 批量下载, 保存位置相同
+     *
+     * @param savePath
+     * @param torrents 种子文件与名称
+     * @param ova
+     * @return 每个种子是否添加成功
+     */
+    default Map<File, Boolean> download(String savePath, Map<File, String> torrents, Boolean ova) {
+        Map<File, Boolean> result = new LinkedHashMap<>();
+        torrents.forEach((torrentFile, name) -> result.put(torrentFile, download(name, savePath, torrentFile, ova)));
+        return result;
+    }
+
     /**
      * 删除已完成任务
      *
@@ -55,6 +127,15 @@ public interface BaseDownload {
      */
     void delete(TorrentsInfo torrentsInfo);
 
+    /**
+     * 批量删除已完成任务
+     *
+     * @param torrentsInfos
+     */
+    default void delete(List<TorrentsInfo> torrentsInfos) {
+        torrentsInfos.forEach(this::delete);
+    }
+
     /**
      * 重命名
      *
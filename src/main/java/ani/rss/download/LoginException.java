@@ -0,0 +1,10 @@
+package ani.rss.download;
+
+/**
+ * 下载工具的登录已失效
+ */
+public class LoginException extends RuntimeException {
+    public LoginException(String message) {
+        super(message);
+    }
+}
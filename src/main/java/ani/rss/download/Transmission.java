@@ -3,33 +3,41 @@ package ani.rss.download;
 import ani.rss.entity.Config;
 import ani.rss.entity.TorrentsInfo;
 import ani.rss.util.HttpReq;
+import ani.rss.util.JsonReaderUtil;
 import cn.hutool.core.codec.Base64;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IORuntimeException;
 import cn.hutool.core.io.resource.ResourceUtil;
 import cn.hutool.core.text.StrFormatter;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.http.Header;
+import cn.hutool.http.HttpRequest;
 import cn.hutool.http.HttpResponse;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import cn.hutool.http.HttpStatus;
+import com.google.gson.stream.JsonReader;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.function.BiFunction;
 
 @Slf4j
 public class Transmission implements BaseDownload {
-    private String host = "";
-    private String authorization = "";
-    private String sessionId = "";
-    private Config config;
+    private volatile String host = "";
+    private volatile String authorization = "";
+    private volatile String sessionId = "";
+    private volatile Config config;
+
+    /**
+     * 已登录时的连接设置, 为空表示未登录
+     */
+    private volatile String loginKey = "";
 
     @Override
     public Boolean login(Config config) {
@@ -44,6 +52,11 @@ public class Transmission implements BaseDownload {
             return false;
         }
 
+        String key = String.join("\n", host, username, password);
+        if (key.equals(loginKey)) {
+            return true;
+        }
+
         authorization = StrFormatter.format("Basic {}", Base64.encode(username + ":" + password));
         Boolean isOk = HttpReq.get(host, false)
                 .header(Header.AUTHORIZATION, authorization)
@@ -53,61 +66,147 @@ public class Transmission implements BaseDownload {
             return false;
         }
         try {
-            getTorrentsInfos();
+            doGetTorrentsInfos();
         } catch (Exception e) {
             log.error("登录 Transmission 失败");
             return false;
         }
+        loginKey = key;
         return true;
     }
 
+    @Override
+    public void logout() {
+        loginKey = "";
+    }
+
+    /**
+     * 调用 rpc, Session-Id 过期 (409) 时使用新的 Session-Id 重试
+     *
+     * @param body
+     * @param function
+     * @param <T>
+     * @return
+     */
+    private <T> T rpc(String body, BiFunction<HttpResponse, Reader, T> function) {
+        String oldSessionId = sessionId;
+        HttpRequest httpRequest = HttpReq.post(host + "/transmission/rpc", false)
+                .header(Header.AUTHORIZATION, authorization)
+                .header("X-Transmission-Session-Id", oldSessionId)
+                .body(body);
+        Boolean[] conflict = {false};
+        T t = HttpReq.thenReader(httpRequest, (res, reader) -> {
+            if (res.getStatus() == HttpStatus.HTTP_CONFLICT) {
+                String id = res.header("X-Transmission-Session-Id");
+                if (StrUtil.isBlank(id) || id.equals(oldSessionId)) {
+                    throw new LoginException("获取 X-Transmission-Session-Id 失败");
+                }
+                sessionId = id;
+                conflict[0] = true;
+                return null;
+            }
+            checkLogin(res);
+            return function.apply(res, reader);
+        });
+        if (!conflict[0]) {
+            return t;
+        }
+        return rpc(body, function);
+    }
+
     @Override
     public List<TorrentsInfo> getTorrentsInfos() {
+        return relogin(config, this::doGetTorrentsInfos);
+    }
+
+    private List<TorrentsInfo> doGetTorrentsInfos() {
         String body = ResourceUtil.readUtf8Str("transmission/torrent-get.json");
+        return rpc(body, (res, reader) -> {
+            try {
+                return readTorrents(new JsonReader(reader));
+            } catch (IOException e) {
+                throw new IORuntimeException(e);
+            }
+        });
+    }
 
-        return HttpReq.post(host + "/transmission/rpc", false)
-                .header(Header.AUTHORIZATION, authorization)
-                .header("X-Transmission-Session-Id", sessionId)
-                .body(body)
-                .thenFunction(res -> {
-                    String id = res.header("X-Transmission-Session-Id");
-                    if (StrUtil.isNotBlank(id)) {
-                        sessionId = id;
-                        return getTorrentsInfos();
-                    }
-                    List<TorrentsInfo> torrentsInfos = new ArrayList<>();
-                    JsonObject jsonObject = gson.fromJson(res.body(), JsonObject.class);
-                    JsonArray torrents = jsonObject.get("arguments")
-                            .getAsJsonObject()
-                            .get("torrents")
-                            .getAsJsonArray();
-                    for (JsonElement jsonElement : torrents.asList()) {
-                        JsonObject asJsonObject = jsonElement.getAsJsonObject();
-                        List<String> tags = asJsonObject.get("labels").getAsJsonArray()
-                                .asList().stream().map(JsonElement::getAsString).collect(Collectors.toList());
-                        if (!tags.contains(tag)) {
-                            continue;
-                        }
-                        List<String> files = asJsonObject.get("files").getAsJsonArray().asList()
-                                .stream().map(JsonElement::getAsJsonObject)
-                                .map(o -> o.get("name").getAsString())
-                                .collect(Collectors.toList());
-
-                        TorrentsInfo.State state = asJsonObject.get("isFinished").getAsBoolean() ?
-                                TorrentsInfo.State.pausedUP : TorrentsInfo.State.downloading;
-
-                        TorrentsInfo torrentsInfo = new TorrentsInfo();
-                        torrentsInfo.setName(asJsonObject.get("name").getAsString());
-                        torrentsInfo.setTags(CollUtil.join(tags, ","));
-                        torrentsInfo.setHash(asJsonObject.get("hashString").getAsString());
-                        torrentsInfo.setState(state);
-                        torrentsInfo.setId(asJsonObject.get("id").getAsString());
-                        torrentsInfo.setDownloadDir(asJsonObject.get("downloadDir").getAsString());
-                        torrentsInfo.setFiles(files);
+    /**
+     * 流式读取 torrent-get 的结果, 只保留带 ani-rss 标签的任务
+     *
+     * @param reader
+     * @return
+     * @throws IOException
+     */
+    public static List<TorrentsInfo> readTorrents(JsonReader reader) throws IOException {
+        List<TorrentsInfo> torrentsInfos = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"arguments".equals(reader.nextName())) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"torrents".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    TorrentsInfo torrentsInfo = readTorrent(reader);
+                    if (Objects.nonNull(torrentsInfo)) {
                         torrentsInfos.add(torrentsInfo);
                     }
-                    return torrentsInfos;
-                });
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return torrentsInfos;
+    }
+
+    /**
+     * @param reader
+     * @return 没有 ani-rss 标签时为 null
+     * @throws IOException
+     */
+    private static TorrentsInfo readTorrent(JsonReader reader) throws IOException {
+        TorrentsInfo torrentsInfo = new TorrentsInfo();
+        List<String> tags = List.of();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    torrentsInfo.setName(JsonReaderUtil.nextString(reader));
+                    break;
+                case "labels":
+                    tags = JsonReaderUtil.nextStringList(reader);
+                    break;
+                case "hashString":
+                    torrentsInfo.setHash(JsonReaderUtil.nextString(reader));
+                    break;
+                case "isFinished":
+                    TorrentsInfo.State state = JsonReaderUtil.nextBoolean(reader) ?
+                            TorrentsInfo.State.pausedUP : TorrentsInfo.State.downloading;
+                    torrentsInfo.setState(state);
+                    break;
+                case "id":
+                    torrentsInfo.setId(JsonReaderUtil.nextString(reader));
+                    break;
+                case "downloadDir":
+                    torrentsInfo.setDownloadDir(JsonReaderUtil.nextIntern(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!tags.contains(tag)) {
+            return null;
+        }
+        torrentsInfo.setTags(JsonReaderUtil.intern(CollUtil.join(tags, ",")));
+        return torrentsInfo;
     }
 
     @Override
@@ -128,49 +227,20 @@ public class Transmission implements BaseDownload {
 
         String hash = FileUtil.mainName(torrentFile);
 
-        HttpReq.post(host + "/transmission/rpc", false)
-                .header(Header.AUTHORIZATION, authorization)
-                .header("X-Transmission-Session-Id", sessionId)
-                .body(body)
-                .then(HttpResponse::isOk);
-
-        Boolean watchErrorTorrent = config.getWatchErrorTorrent();
+        String finalBody = body;
+        relogin(config, () -> rpc(finalBody, (res, reader) -> res.isOk()));
 
-        if (!watchErrorTorrent) {
-            if (!ova && !"txt".equals(extName)) {
-                renameCache.put(hash, name);
-            }
-            return true;
+        if (!ova && !"txt".equals(extName)) {
+            renameCache.put(hash, name);
         }
-
-        List<TorrentsInfo> torrentsInfos = getTorrentsInfos();
-        for (int i = 0; i < 10; i++) {
-            ThreadUtil.sleep(2000);
-            Optional<TorrentsInfo> optionalTorrentsInfo = torrentsInfos
-                    .stream()
-                    .filter(torrentsInfo -> torrentsInfo.getHash().equals(hash))
-                    .findFirst();
-            if (optionalTorrentsInfo.isEmpty()) {
-                continue;
-            }
-            if (!ova && !"txt".equals(extName)) {
-                renameCache.put(hash, name);
-            }
-            return true;
-        }
-
-        return false;
+        return true;
     }
 
     @Override
     public void delete(TorrentsInfo torrentsInfo) {
         String body = ResourceUtil.readUtf8Str("transmission/torrent-remove.json");
-        body = StrFormatter.format(body, torrentsInfo.getId());
-        HttpReq.post(host + "/transmission/rpc", false)
-                .header(Header.AUTHORIZATION, authorization)
-                .header("X-Transmission-Session-Id", sessionId)
-                .body(body)
-                .then(HttpResponse::isOk);
+        String finalBody = StrFormatter.format(body, torrentsInfo.getId());
+        relogin(config, () -> rpc(finalBody, (res, reader) -> res.isOk()));
     }
 
     @Override
@@ -196,15 +266,11 @@ public class Transmission implements BaseDownload {
         }
 
         String body = ResourceUtil.readUtf8Str("transmission/torrent-rename-path.json");
-        body = StrFormatter.format(body, id, name, reName);
+        String finalBody = StrFormatter.format(body, id, name, reName);
 
         log.info("重命名 {} ==> {}", name, reName);
 
-        Boolean ok = HttpReq.post(host + "/transmission/rpc", false)
-                .header(Header.AUTHORIZATION, authorization)
-                .header("X-Transmission-Session-Id", sessionId)
-                .body(body)
-                .thenFunction(HttpResponse::isOk);
+        Boolean ok = relogin(config, () -> rpc(finalBody, (res, reader) -> res.isOk()));
         if (ok) {
             renameCache.remove(hash);
             return;
@@ -4,26 +4,47 @@ import ani.rss.entity.Config;
 import ani.rss.entity.TorrentsInfo;
 import ani.rss.util.ExceptionUtil;
 import ani.rss.util.HttpReq;
+import ani.rss.util.JsonReaderUtil;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IORuntimeException;
 import cn.hutool.core.lang.Assert;
-import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.EnumUtil;
 import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 public class qBittorrent implements BaseDownload {
-    private Config config;
+    private volatile Config config;
+
+    /**
+     * 已登录时的连接设置, 为空表示未登录
+     */
+    private volatile String loginKey = "";
+
+    /**
+     * sync/maindata 的 rid, 0 表示下次获取全量数据
+     */
+    private long rid = 0;
+
+    /**
+     * 本地的任务列表副本 hash -> 任务, 每次只合并变化的部分
+     */
+    private final Map<String, TorrentsInfo> torrentMap = new LinkedHashMap<>();
 
     @Override
     public Boolean login(Config config) {
@@ -38,8 +59,14 @@ public class qBittorrent implements BaseDownload {
             return false;
         }
 
+        // 使用已有的 SID
+        String key = String.join("\n", host, username, password);
+        if (key.equals(loginKey)) {
+            return true;
+        }
+
         try {
-            return HttpReq.post(host + "/api/v2/auth/login", false)
+            Boolean ok = HttpReq.post(host + "/api/v2/auth/login", false)
                     .form("username", username)
                     .form("password", password)
                     .setFollowRedirects(true)
@@ -50,6 +77,11 @@ public class qBittorrent implements BaseDownload {
                         }
                         return true;
                     });
+            if (ok) {
+                loginKey = key;
+                resetSync();
+            }
+            return ok;
         } catch (Exception e) {
             String message = ExceptionUtil.getMessage(e);
             log.error("登录 qBittorrent 失败 {}", message);
@@ -57,34 +89,155 @@ public class qBittorrent implements BaseDownload {
         return false;
     }
 
+    @Override
+    public void logout() {
+        loginKey = "";
+        resetSync();
+    }
+
+    private synchronized void resetSync() {
+        rid = 0;
+        torrentMap.clear();
+    }
+
     @Override
     public List<TorrentsInfo> getTorrentsInfos() {
+        return relogin(config, this::doGetTorrentsInfos);
+    }
+
+    /**
+     * 通过 sync/maindata 增量更新本地副本, 只返回带 ani-rss 标签的任务
+     *
+     * @return
+     */
+    private synchronized List<TorrentsInfo> doGetTorrentsInfos() {
         String host = config.getHost();
-        return HttpReq.get(host + "/api/v2/torrents/info", false)
-                .thenFunction(res -> {
-                    List<TorrentsInfo> torrentsInfoList = new ArrayList<>();
-                    JsonArray jsonElements = gson.fromJson(res.body(), JsonArray.class);
-                    for (JsonElement jsonElement : jsonElements) {
-                        JsonObject jsonObject = jsonElement.getAsJsonObject();
-                        TorrentsInfo torrentsInfo = gson.fromJson(jsonObject, TorrentsInfo.class);
-                        String tags = torrentsInfo.getTags();
-                        if (StrUtil.isBlank(tags)) {
-                            continue;
-                        }
-                        // 包含标签
-                        if (StrUtil.split(tags, ",", true, true).contains(tag)) {
-                            torrentsInfoList.add(torrentsInfo);
-                        }
+        HttpRequest httpRequest = HttpReq.get(host + "/api/v2/sync/maindata", false)
+                .form("rid", rid);
+        rid = HttpReq.thenReader(httpRequest, (res, reader) -> {
+            checkLogin(res);
+            try {
+                return readMaindata(new JsonReader(reader), torrentMap);
+            } catch (IOException e) {
+                throw new IORuntimeException(e);
+            }
+        });
+
+        List<TorrentsInfo> torrentsInfoList = new ArrayList<>();
+        for (TorrentsInfo torrentsInfo : torrentMap.values()) {
+            String tags = torrentsInfo.getTags();
+            if (StrUtil.isBlank(tags) || !tags.contains(tag)) {
+                continue;
+            }
+            // 包含标签
+            if (!StrUtil.split(tags, ",", true, true).contains(tag)) {
+                continue;
+            }
+            // 副本会被下次同步修改, 返回复制的对象
+            torrentsInfoList.add(new TorrentsInfo()
+                    .setHash(torrentsInfo.getHash())
+                    .setName(torrentsInfo.getName())
+                    .setState(torrentsInfo.getState())
+                    .setTags(tags)
+                    .setDownloadDir(torrentsInfo.getDownloadDir()));
+        }
+        return torrentsInfoList;
+    }
+
+    /**
+     * 流式读取 sync/maindata 并合并到副本, 只读取用到的字段
+     *
+     * @param reader
+     * @param torrentMap hash -> 任务
+     * @return rid
+     * @throws IOException
+     */
+    public static long readMaindata(JsonReader reader, Map<String, TorrentsInfo> torrentMap) throws IOException {
+        long rid = 0;
+        boolean fullUpdate = false;
+        // 本次出现的任务, 全量更新时删除其他任务
+        Set<String> hashSet = new HashSet<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "rid":
+                    rid = reader.nextLong();
+                    break;
+                case "full_update":
+                    fullUpdate = JsonReaderUtil.nextBoolean(reader);
+                    break;
+                case "torrents":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String hash = reader.nextName();
+                        hashSet.add(hash);
+                        TorrentsInfo torrentsInfo = torrentMap.computeIfAbsent(hash, k -> new TorrentsInfo().setHash(k));
+                        // 只包含发生变化的字段
+                        readTorrent(reader, torrentsInfo);
                     }
-                    return torrentsInfoList;
-                });
+                    reader.endObject();
+                    break;
+                case "torrents_removed":
+                    for (String hash : JsonReaderUtil.nextStringList(reader)) {
+                        torrentMap.remove(hash);
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (fullUpdate) {
+            torrentMap.keySet().retainAll(hashSet);
+        }
+        return rid;
+    }
+
+    private static void readTorrent(JsonReader reader, TorrentsInfo torrentsInfo) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    torrentsInfo.setName(JsonReaderUtil.nextString(reader));
+                    break;
+                case "state":
+                    String state = JsonReaderUtil.nextString(reader);
+                    torrentsInfo.setState(EnumUtil.fromStringQuietly(TorrentsInfo.State.class, state));
+                    break;
+                case "tags":
+                    torrentsInfo.setTags(JsonReaderUtil.nextIntern(reader));
+                    break;
+                case "save_path":
+                    torrentsInfo.setDownloadDir(JsonReaderUtil.nextIntern(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
     }
 
     @Override
     public Boolean download(String name, String savePath, File torrentFile, Boolean ova) {
+        return download(savePath, Map.of(torrentFile, name), ova).get(torrentFile);
+    }
+
+    @Override
+    public Map<File, Boolean> download(String savePath, Map<File, String> torrents, Boolean ova) {
         String host = config.getHost();
         Boolean qbRenameTitle = config.getQbRenameTitle();
         Boolean qbUseDownloadPath = config.getQbUseDownloadPath();
+
+        // 标题重命名需要每个种子单独添加
+        if (qbRenameTitle && torrents.size() > 1) {
+            return BaseDownload.super.download(savePath, torrents, ova);
+        }
+
+        String rename = "";
+        if (qbRenameTitle) {
+            rename = torrents.values().iterator().next();
+        }
+
         HttpRequest httpRequest = HttpReq.post(host + "/api/v2/torrents/add", false)
                 .form("addToTopOfQueue", false)
                 .form("autoTMM", false)
@@ -92,7 +245,7 @@ public class qBittorrent implements BaseDownload {
                 .form("dlLimit", 0)
                 .form("firstLastPiecePrio", false)
                 .form("paused", false)
-                .form("rename", qbRenameTitle ? name : "")
+                .form("rename", rename)
                 .form("savepath", savePath)
                 .form("sequentialDownload", false)
                 .form("skip_checking", false)
@@ -101,51 +254,47 @@ public class qBittorrent implements BaseDownload {
                 .form("useDownloadPath", qbUseDownloadPath)
                 .form("tags", "ani-rss");
 
-        String extName = FileUtil.extName(torrentFile);
-        if ("txt".equals(extName)) {
-            httpRequest.form("urls", FileUtil.readUtf8String(torrentFile));
-        } else {
-            httpRequest.form("torrents", torrentFile);
-        }
-        httpRequest.thenFunction(HttpResponse::isOk);
-
-        String hash = FileUtil.mainName(torrentFile);
-        Boolean watchErrorTorrent = config.getWatchErrorTorrent();
-
-        if (!qbRenameTitle && !"txt".equals(extName) && !ova) {
-            renameCache.put(hash, name);
+        List<String> urls = new ArrayList<>();
+        List<File> files = new ArrayList<>();
+        torrents.forEach((torrentFile, name) -> {
+            String hash = FileUtil.mainName(torrentFile);
+            String extName = FileUtil.extName(torrentFile);
+            if ("txt".equals(extName)) {
+                urls.add(FileUtil.readUtf8String(torrentFile));
+                return;
+            }
+            files.add(torrentFile);
+            if (!qbRenameTitle && !ova) {
+                renameCache.put(hash, name);
+            }
+        });
+        if (!urls.isEmpty()) {
+            httpRequest.form("urls", String.join("\n", urls));
         }
-
-        if (!watchErrorTorrent) {
-            return true;
+        if (!files.isEmpty()) {
+            httpRequest.form("torrents", files.toArray(new File[0]));
         }
+        relogin(config, () -> httpRequest.thenFunction(res -> {
+            checkLogin(res);
+            return res.isOk();
+        }));
 
-
-        for (int i = 0; i < 10; i++) {
-            ThreadUtil.sleep(2000);
-            List<TorrentsInfo> torrentsInfos = getTorrentsInfos();
-            Optional<TorrentsInfo> optionalTorrentsInfo = torrentsInfos
-                    .stream()
-                    .filter(torrentsInfo ->
-                            torrentsInfo.getHash().equals(hash) ||
-                                    torrentsInfo.getName().equals(name)
-                    )
-                    .findFirst();
-            if (optionalTorrentsInfo.isPresent()) {
-                return true;
-            }
-        }
-        return false;
+        Map<File, Boolean> result = new LinkedHashMap<>();
+        torrents.keySet().forEach(torrentFile -> result.put(torrentFile, true));
+        return result;
     }
 
     @Override
     public void delete(TorrentsInfo torrentsInfo) {
         String host = config.getHost();
         String hash = torrentsInfo.getHash();
-        HttpReq.post(host + "/api/v2/torrents/delete", false)
+        relogin(config, () -> HttpReq.post(host + "/api/v2/torrents/delete", false)
                 .form("hashes", hash)
                 .form("deleteFiles", false)
-                .thenFunction(HttpResponse::isOk);
+                .thenFunction(res -> {
+                    checkLogin(res);
+                    return res.isOk();
+                }));
     }
 
     @Override
@@ -168,19 +317,20 @@ public class qBittorrent implements BaseDownload {
         String host = config.getHost();
 
 
-        List<String> nameList = HttpReq.get(host + "/api/v2/torrents/files", false)
-                .form("hash", hash)
-                .thenFunction(res -> {
-                    JsonArray jsonElements = gson.fromJson(res.body(), JsonArray.class);
+        HttpRequest httpRequest = HttpReq.get(host + "/api/v2/torrents/files", false)
+                .form("hash", hash);
+        List<String> nameList = relogin(config, () -> HttpReq.thenReader(httpRequest, (res, reader) -> {
+            checkLogin(res);
+            JsonArray jsonElements = gson.fromJson(reader, JsonArray.class);
 
-                    List<String> names = new ArrayList<>();
-                    for (JsonElement jsonElement : jsonElements) {
-                        JsonObject jsonObject = jsonElement.getAsJsonObject();
-                        String name = jsonObject.get("name").getAsString();
-                        names.add(name);
-                    }
-                    return names;
-                });
+            List<String> names = new ArrayList<>();
+            for (JsonElement jsonElement : jsonElements) {
+                JsonObject jsonObject = jsonElement.getAsJsonObject();
+                String name = jsonObject.get("name").getAsString();
+                names.add(name);
+            }
+            return names;
+        }));
 
         List<String> newNames = new ArrayList<>();
 
@@ -201,11 +351,14 @@ public class qBittorrent implements BaseDownload {
 
             log.info("重命名 {} ==> {}", name, newPath);
 
-            Boolean b = HttpReq.post(host + "/api/v2/torrents/renameFile", false)
+            Boolean b = relogin(config, () -> HttpReq.post(host + "/api/v2/torrents/renameFile", false)
                     .form("hash", hash)
                     .form("oldPath", name)
                     .form("newPath", newPath)
-                    .thenFunction(HttpResponse::isOk);
+                    .thenFunction(res -> {
+                        checkLogin(res);
+                        return res.isOk();
+                    }));
             Assert.isTrue(b, "重命名失败 {} ==> {}", name, newPath);
             renameCache.remove(hash);
         }
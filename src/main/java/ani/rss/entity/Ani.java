@@ -161,6 +161,11 @@ public class Ani implements Serializable {
      */
     private Boolean omit;
 
+    /**
+     * 下载优先级, 数值越大越优先
+     */
+    private Integer priority;
+
     public static Ani bulidAni() {
         Ani newAni = new Ani();
         return newAni
@@ -187,7 +192,8 @@ public class Ani implements Serializable {
                 .setCustomEpisode(false)
                 .setCustomEpisodeStr("\\d{1,2}(\\.5)?")
                 .setCustomEpisodeGroupIndex(0)
-                .setOmit(true);
+                .setOmit(true)
+                .setPriority(0);
     }
 
     @Data
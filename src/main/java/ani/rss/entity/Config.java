@@ -14,6 +14,16 @@ public class Config implements Serializable {
      */
     private String mikanHost;
 
+    /**
+     * 使用 Mikan 聚合 rss (MyBangumi) 获取所有 Mikan 订阅
+     */
+    private Boolean mikanMyBangumi;
+
+    /**
+     * Mikan 聚合 rss 地址
+     */
+    private String mikanMyBangumiUrl;
+
     /**
      * 下载工具
      */
@@ -164,6 +174,11 @@ public class Config implements Serializable {
      */
     private Integer downloadCount;
 
+    /**
+     * 等待下载队列的顺序 airDate: 最早放送, episode: 最小集数, priority: 订阅优先级
+     */
+    private String downloadQueueOrder;
+
     /**
      * 邮箱是否开启
      */
@@ -189,6 +204,16 @@ public class Config implements Serializable {
      */
     private List<String> exclude;
 
+    /**
+     * 按请求类型与域名限制请求
+     */
+    private List<HostLimit> hostLimits;
+
+    /**
+     * 复用刚获取的 rss 的时间 秒
+     */
+    private Integer rssCacheTime;
+
     /**
      * 默认导入全局排除
      */
@@ -0,0 +1,53 @@
+package ani.rss.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * 下载记录
+ */
+@Data
+@Accessors(chain = true)
+public class History implements Serializable {
+    /**
+     * 小写的 infoHash
+     */
+    private String infoHash;
+
+    /**
+     * 订阅id
+     */
+    private String aniId;
+
+    /**
+     * 订阅标题
+     */
+    private String title;
+
+    /**
+     * 集数
+     */
+    private Double episode;
+
+    /**
+     * 重命名后的名称
+     */
+    private String reName;
+
+    /**
+     * 处理结果
+     */
+    private Seen.State state;
+
+    /**
+     * 首次记录时间 毫秒
+     */
+    private Long createTime;
+
+    /**
+     * 最后更新时间 毫秒
+     */
+    private Long updateTime;
+}
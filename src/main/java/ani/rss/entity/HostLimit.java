@@ -0,0 +1,38 @@
+package ani.rss.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * 按请求类型与域名限制请求
+ */
+@Data
+@Accessors(chain = true)
+public class HostLimit implements Serializable {
+    /**
+     * 请求类型 rss, download, bgm. 未设置时为 rss
+     */
+    private String type;
+
+    /**
+     * 域名, * 为其他域名 (每个域名单独计算)
+     */
+    private String host;
+
+    /**
+     * 同时请求数量, 仅对 rss 生效
+     */
+    private Integer concurrency;
+
+    /**
+     * 每隔多少毫秒补充一次请求额度
+     */
+    private Long interval;
+
+    /**
+     * 额度上限, 空闲后最多可以连续请求的次数
+     */
+    private Integer burst;
+}
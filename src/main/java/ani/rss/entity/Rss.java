@@ -0,0 +1,20 @@
+package ani.rss.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Data
+@Accessors(chain = true)
+public class Rss {
+    /**
+     * channel 标题
+     */
+    private String title;
+
+    /**
+     * 条目
+     */
+    private List<Item> items;
+}
@@ -0,0 +1,30 @@
+package ani.rss.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+@Data
+@Accessors(chain = true)
+public class RssCache implements Serializable {
+    /**
+     * ETag
+     */
+    private String etag;
+
+    /**
+     * Last-Modified
+     */
+    private String lastModified;
+
+    /**
+     * rss 内容的摘要
+     */
+    private String hash;
+
+    /**
+     * 订阅规则的摘要, 规则改变后缓存失效
+     */
+    private String stamp;
+}
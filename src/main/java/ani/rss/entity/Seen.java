@@ -0,0 +1,39 @@
+package ani.rss.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 订阅中已处理过的条目
+ */
+@Data
+@Accessors(chain = true)
+public class Seen implements Serializable {
+    /**
+     * 订阅规则的摘要, 规则改变后重新处理所有条目
+     */
+    private String stamp;
+
+    /**
+     * infoHash (没有时为种子地址) -> 处理结果
+     */
+    private Map<String, State> items;
+
+    public enum State {
+        /**
+         * 已添加下载 或 下载工具中已存在
+         */
+        DOWNLOADED,
+        /**
+         * 本地文件已存在
+         */
+        LOCAL,
+        /**
+         * 添加下载失败
+         */
+        FAILED
+    }
+}
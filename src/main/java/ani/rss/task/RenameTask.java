@@ -6,7 +6,6 @@ import ani.rss.util.ConfigUtil;
 import ani.rss.util.ExceptionUtil;
 import ani.rss.util.TorrentUtil;
 import cn.hutool.core.thread.ThreadUtil;
-import cn.hutool.core.util.EnumUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
@@ -22,6 +21,11 @@ public class RenameTask extends Thread {
 
     private final AtomicBoolean loop;
 
+    /**
+     * 下载工具推送完成事件时, 每隔多少次才检查一次任务列表
+     */
+    private static final int RECONCILE_TIMES = 10;
+
     @Override
     public void run() {
         super.setName("rename-task-thread");
@@ -29,21 +33,26 @@ public class RenameTask extends Thread {
         Integer renameSleep = config.getRenameSleep();
 
         log.info("{} 当前设置间隔为 {} 分钟", getName(), renameSleep);
+        int times = 0;
         while (loop.get()) {
             if (!TorrentUtil.login()) {
                 ThreadUtil.sleep(renameSleep, TimeUnit.MINUTES);
                 continue;
             }
+            // 已由事件处理, 低频对账
+            if (TorrentUtil.isListening() && times++ % RECONCILE_TIMES != 0) {
+                ThreadUtil.sleep(renameSleep, TimeUnit.MINUTES);
+                continue;
+            }
             try {
                 List<TorrentsInfo> torrentsInfos = TorrentUtil.getTorrentsInfos();
                 for (TorrentsInfo torrentsInfo : torrentsInfos) {
-                    TorrentsInfo.State state = torrentsInfo.getState();
                     TorrentUtil.rename(torrentsInfo);
-                    if (!EnumUtil.equalsIgnoreCase(state, TorrentsInfo.State.pausedUP.name())) {
-                        continue;
-                    }
-                    TorrentUtil.delete(torrentsInfo);
                 }
+                // 已完成的任务一次删除
+                TorrentUtil.delete(torrentsInfos);
+                // 有任务完成时添加等待中的下载
+                TorrentUtil.downloadQueue();
             } catch (Exception e) {
                 String message = ExceptionUtil.getMessage(e);
                 log.error(message);
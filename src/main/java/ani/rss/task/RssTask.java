@@ -2,17 +2,32 @@ package ani.rss.task;
 
 import ani.rss.entity.Ani;
 import ani.rss.entity.Config;
+import ani.rss.entity.HostLimit;
+import ani.rss.entity.Item;
 import ani.rss.util.AniUtil;
 import ani.rss.util.ConfigUtil;
 import ani.rss.util.ExceptionUtil;
+import ani.rss.util.HostLimitUtil;
+import ani.rss.util.MyBangumiUtil;
+import ani.rss.util.RssUtil;
+import ani.rss.util.SeenUtil;
 import ani.rss.util.TorrentUtil;
 import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.ObjectUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class RssTask extends Thread {
@@ -58,32 +73,80 @@ public class RssTask extends Thread {
     }
 
     public static void download() {
+        long skip = RssUtil.SKIP.get();
+        List<ExecutorService> executors = new ArrayList<>();
         try {
             if (!TorrentUtil.login()) {
                 return;
             }
-            List<Ani> aniList = ObjectUtil.clone(AniUtil.ANI_LIST);
+            List<Ani> aniList = ObjectUtil.clone(AniUtil.ANI_LIST)
+                    .stream()
+                    .filter(ani -> {
+                        if (!ani.getEnable()) {
+                            log.debug("{} 未启用", ani.getTitle());
+                            return false;
+                        }
+                        return true;
+                    })
+                    .collect(Collectors.toList());
+
+            // Mikan 聚合 rss 只获取一次
+            Map<String, List<Item>> myBangumi = MyBangumiUtil.get();
+
+            // 按域名并发获取 rss, 各域名的请求互不影响
+            Map<String, ExecutorService> executorMap = new HashMap<>();
+            List<Future<List<Item>>> futures = new ArrayList<>();
+            List<Boolean> partialList = new ArrayList<>();
             for (Ani ani : aniList) {
-                String title = ani.getTitle();
-                Boolean enable = ani.getEnable();
-                if (!enable) {
-                    log.debug("{} 未启用", title);
+                boolean covered = MyBangumiUtil.covered(ani, myBangumi);
+                if (covered && MyBangumiUtil.partial(ani, myBangumi)) {
+                    futures.add(CompletableFuture.completedFuture(MyBangumiUtil.getItems(ani, myBangumi)));
+                    partialList.add(true);
                     continue;
                 }
+                partialList.add(false);
+                // 使用聚合 rss 的订阅定期完整处理, 期间下载的剧集需要计入, rss 未发生变化也不能跳过
+                boolean ifModified = !covered;
+                String host = HostLimitUtil.getHost(ani.getUrl());
+                ExecutorService executor = executorMap.computeIfAbsent(host, k -> {
+                    HostLimit hostLimit = HostLimitUtil.getHostLimit(host);
+                    ExecutorService newExecutor = ThreadUtil.newFixedExecutor(Math.max(1, Objects.requireNonNullElse(hostLimit.getConcurrency(), 1)), "rss-fetch-" + host + "-", true);
+                    executors.add(newExecutor);
+                    return newExecutor;
+                });
+                futures.add(executor.submit(() -> AniUtil.getItems(ani, ifModified)));
+            }
+
+            // 按订阅顺序依次下载
+            for (int i = 0; i < aniList.size(); i++) {
+                Ani ani = aniList.get(i);
+                String title = ani.getTitle();
                 try {
-                    TorrentUtil.downloadAni(ani);
+                    List<Item> items = futures.get(i).get();
+                    TorrentUtil.downloadAni(ani, items, partialList.get(i));
                 } catch (Exception e) {
+                    if (e instanceof ExecutionException && e.getCause() instanceof Exception) {
+                        e = (Exception) e.getCause();
+                    }
+                    // 未处理完成, 已获取到的校验信息不能提交
+                    RssUtil.rollback(ani);
                     String message = ExceptionUtil.getMessage(e);
                     log.error("{} {}", title, message);
                     log.debug(message, e);
                 }
-                // 避免短时间频繁请求导致流控
-                ThreadUtil.sleep(500);
             }
+
+            // 所有订阅处理完成后, 按排队顺序统一添加
+            TorrentUtil.downloadQueue();
         } catch (Exception e) {
             String message = ExceptionUtil.getMessage(e);
             log.error(message, e);
         } finally {
+            executors.forEach(ExecutorService::shutdownNow);
+            RssUtil.sync();
+            SeenUtil.sync();
+            log.info("rss未发生变化, 本次跳过 {} 个订阅", RssUtil.SKIP.get() - skip);
+            log.debug("rss 未修改 {} 内容未变化 {} 已变化 {} 失败 {}", RssUtil.HIT.get(), RssUtil.UNCHANGED.get(), RssUtil.MISS.get(), RssUtil.ERROR.get());
             download.set(false);
         }
     }
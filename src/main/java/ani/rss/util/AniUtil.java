@@ -8,9 +8,7 @@ import cn.hutool.core.convert.Convert;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.lang.Assert;
 import cn.hutool.core.text.StrFormatter;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.*;
-import cn.hutool.http.HttpResponse;
 import cn.hutool.http.HttpUtil;
 import cn.hutool.json.JSONUtil;
 import com.google.gson.Gson;
@@ -20,15 +18,12 @@ import com.google.gson.JsonElement;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Element;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -155,18 +150,11 @@ public class AniUtil {
             }
         }
 
-        String s = HttpReq.get(url, true)
-                .thenFunction(HttpResponse::body);
-        Document document = XmlUtil.readXML(s);
-        Node channel = document.getElementsByTagName("channel").item(0);
-        NodeList childNodes = channel.getChildNodes();
-
-        for (int i = childNodes.getLength() - 1; i >= 0; i--) {
-            Node item = childNodes.item(i);
-            String nodeName = item.getNodeName();
-            if (nodeName.equals("title")) {
-                title = ReUtil.replaceAll(item.getTextContent(), "^Mikan Project - ", "").trim();
-            }
+        String s = RssUtil.get(url);
+        // 只解析一次, 标题与视频列表共用
+        Rss rss = RssUtil.parse(s, it -> true);
+        if (StrUtil.isNotEmpty(rss.getTitle())) {
+            title = ReUtil.replaceAll(rss.getTitle(), "^Mikan Project - ", "").trim();
         }
 
         String seasonReg = "第(.+)季";
@@ -289,7 +277,11 @@ public class AniUtil {
 
         log.debug("获取到动漫信息 {}", JSONUtil.formatJsonStr(GSON.toJson(ani)));
 
-        List<Item> items = getItems(ani, s);
+        Predicate<String> filter = getFilter(ani);
+        List<Item> items = getItems(ani, rss.getItems()
+                .stream()
+                .filter(it -> filter.test(it.getTitle()))
+                .collect(Collectors.toList()));
         log.debug("获取到视频 共{}个", items.size());
         if (items.isEmpty() || ani.getOva()) {
             return ani;
@@ -321,6 +313,17 @@ public class AniUtil {
         return dir + "/" + filename;
     }
 
+    /**
+     * 获取排除与匹配规则, 返回 false 表示被排除或不满足匹配规则
+     *
+     * @param ani
+     * @return
+     */
+    public static Predicate<String> getFilter(Ani ani) {
+        FilterEngine filterEngine = FilterEngine.of(ani);
+        return filterEngine::accept;
+    }
+
     /**
      * 获取视频列表
      *
@@ -329,156 +332,37 @@ public class AniUtil {
      * @return
      */
     public static List<Item> getItems(Ani ani, String xml) {
+        Rss rss = RssUtil.parse(xml, getFilter(ani));
+        return getItems(ani, rss.getItems());
+    }
+
+    /**
+     * 对已通过排除与匹配规则的条目解析集数
+     *
+     * @param ani
+     * @param items
+     * @return
+     */
+    public static List<Item> getItems(Ani ani, List<Item> items) {
         String title = ani.getTitle();
 
-        List<String> exclude = ani.getExclude();
-        List<String> match = ani.getMatch();
         Boolean ova = ani.getOva();
 
         int offset = ani.getOffset();
         int season = ani.getSeason();
-        List<Item> items = new ArrayList<>();
-
-        Document document = XmlUtil.readXML(xml);
-        Node channel = document.getElementsByTagName("channel").item(0);
-        NodeList childNodes = channel.getChildNodes();
         Config config = ConfigUtil.CONFIG;
-        List<String> globalExcludeList = config.getExclude();
-        Boolean globalExclude = ani.getGlobalExclude();
-
-        for (int i = childNodes.getLength() - 1; i >= 0; i--) {
-            Node item = childNodes.item(i);
-            String nodeName = item.getNodeName();
-            if (!nodeName.equals("item")) {
-                continue;
-            }
-            String itemTitle = "";
-            String torrent = "";
-            String length = "";
-            String infoHash = "";
-
-            String size = "0MB";
-
-            NodeList itemChildNodes = item.getChildNodes();
-            for (int j = 0; j < itemChildNodes.getLength(); j++) {
-                Node itemChild = itemChildNodes.item(j);
-                String itemChildNodeName = itemChild.getNodeName();
-                if (itemChildNodeName.equals("title")) {
-                    itemTitle = itemChild.getTextContent();
-                }
-
-                if (itemChildNodeName.equals("enclosure")) {
-                    NamedNodeMap attributes = itemChild.getAttributes();
-                    String url = attributes.getNamedItem("url").getNodeValue();
-                    length = attributes.getNamedItem("length").getNodeValue();
-                    if (Long.parseLong(length) > 1) {
-                        torrent = url;
-                        infoHash = FileUtil.mainName(torrent);
-                    }
-
-                    String magnetReg = "^magnet\\:\\?xt=urn:btih\\:(\\w+)";
-                    if (ReUtil.contains(magnetReg, url)) {
-                        torrent = url;
-                        infoHash = ReUtil.get(magnetReg, url, 1);
-                    }
-                }
-                if (itemChildNodeName.equals("nyaa:infoHash")) {
-                    infoHash = itemChild.getTextContent();
-                }
-                if (itemChildNodeName.equals("nyaa:size")) {
-                    size = itemChild.getTextContent();
-                    size = ReUtil.get("[\\d\\.]+", size, 0) + "MB";
-                }
-
-                if (itemChildNodeName.equals("link")) {
-                    String link = itemChild.getTextContent();
-                    if (!link.endsWith(".torrent")) {
-                        continue;
-                    }
-                    torrent = link;
-                }
-            }
-
-            if (StrUtil.isBlank(torrent)) {
-                continue;
-            }
-
-            try {
-                if (StrUtil.isNotBlank(length) && size.equals("0MB")) {
-                    Double l = Long.parseLong(length) / 1024.0 / 1024;
-                    size = NumberUtil.decimalFormat("0.00", l) + "MB";
-                }
-            } catch (Exception e) {
-                log.warn(e.getMessage());
-            }
-
-            if (StrUtil.isNotBlank(infoHash)) {
-                infoHash = infoHash.toLowerCase();
-            }
-
-            Item newItem = new Item()
-                    .setEpisode(1.0)
-                    .setTitle(itemTitle)
-                    .setReName(itemTitle)
-                    .setTorrent(torrent)
-                    .setInfoHash(infoHash)
-                    .setSize(size);
-
-            // 进行过滤
-            if (exclude.stream().anyMatch(s -> ReUtil.contains(s, newItem.getTitle()))) {
-                continue;
-            }
-
-            // 全局排除
-            if (globalExclude) {
-                if (globalExcludeList.stream().anyMatch(s -> ReUtil.contains(s, newItem.getTitle()))) {
-                    continue;
-                }
-            }
-            items.add(newItem);
-        }
-
-        // 匹配规则
-        items = items.stream().filter(it -> {
-            if (match.isEmpty()) {
-                return true;
-            }
-            for (String string : match) {
-                if (ReUtil.contains(string, it.getTitle())) {
-                    return true;
-                }
-            }
-            return false;
-        }).collect(Collectors.toList());
 
         if (ova) {
             return items;
         }
 
-        String s = "(.*|\\[.*])( -? \\d+(\\.5)?|\\[\\d+(\\.5)?]|\\[\\d+(\\.5)?.?[vV]\\d]|第\\d+(\\.5)?[话話集]|\\[第?\\d+(\\.5)?[话話集]]|\\[\\d+(\\.5)?.?END]|[Ee][Pp]?\\d+(\\.5)?)(.*)";
-
-        Boolean customEpisode = ani.getCustomEpisode();
-        String customEpisodeStr = ani.getCustomEpisodeStr();
-        Integer customEpisodeGroupIndex = ani.getCustomEpisodeGroupIndex();
-
         items = items.stream()
                 .filter(item -> {
                     try {
                         String itemTitle = item.getTitle();
                         itemTitle = itemTitle.replace("+NCOPED", "");
 
-                        String e = "";
-                        if (customEpisode) {
-                            e = ReUtil.get(customEpisodeStr, itemTitle, customEpisodeGroupIndex);
-                        } else {
-                            e = ReUtil.get(s, itemTitle, 2);
-                        }
-
-                        if (StrUtil.isBlank(e)) {
-                            return false;
-                        }
-
-                        String episode = ReUtil.get("\\d+(\\.5)?", e, 0);
+                        String episode = EpisodeParser.get(ani, itemTitle);
                         if (StrUtil.isBlank(episode)) {
                             return false;
                         }
@@ -526,32 +410,49 @@ public class AniUtil {
      * @param ani
      * @return
      */
-    public static synchronized List<Item> getItems(Ani ani) {
-        String url = ani.getUrl();
-
-        List<Item> items = new ArrayList<>();
-
-        String s = HttpReq.get(url, true)
-                .thenFunction(HttpResponse::body);
-        items.addAll(getItems(ani, s)
-                .stream()
-                .peek(item -> {
-                    item.setMaster(true)
-                            .setSubgroup(ani.getSubgroup());
-                })
-                .collect(Collectors.toList()));
+    public static List<Item> getItems(Ani ani) {
+        return getItems(ani, false);
+    }
 
-        Config config = ConfigUtil.CONFIG;
-        Boolean qbRenameTitle = config.getQbRenameTitle();
-        if (!qbRenameTitle || !config.getBackRss()) {
-            return items;
+    /**
+     * 获取视频列表
+     *
+     * @param ani
+     * @param ifModified 使用条件请求, 所有 rss 均未发生变化时返回 null
+     * @return
+     */
+    public static List<Item> getItems(Ani ani, Boolean ifModified) {
+        List<String> urls = getUrls(ani);
+        List<String> bodies = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String url = urls.get(i);
+            bodies.add(ifModified ? RssUtil.getIfModified(ani, url) : RssUtil.get(url));
+        }
+        if (bodies.stream().allMatch(Objects::isNull)) {
+            return null;
         }
 
-        List<Ani.BackRss> backRss = ani.getBackRssList();
-        for (Ani.BackRss rss : backRss) {
-            ThreadUtil.sleep(1000);
-            s = HttpReq.get(rss.getUrl(), true)
-                    .thenFunction(HttpResponse::body);
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String s = bodies.get(i);
+            if (Objects.isNull(s)) {
+                // 其他 rss 发生了变化, 仍需要完整的内容, 优先使用保留的内容
+                s = RssUtil.getUnmodified(ani, urls.get(i));
+            }
+            if (Objects.isNull(s)) {
+                s = RssUtil.get(urls.get(i));
+            }
+            if (i == 0) {
+                items.addAll(getItems(ani, s)
+                        .stream()
+                        .peek(item -> {
+                            item.setMaster(true)
+                                    .setSubgroup(ani.getSubgroup());
+                        })
+                        .collect(Collectors.toList()));
+                continue;
+            }
+            Ani.BackRss rss = ani.getBackRssList().get(i - 1);
             items.addAll(getItems(ani, s)
                     .stream()
                     .peek(item -> {
@@ -560,11 +461,36 @@ public class AniUtil {
                     })
                     .collect(Collectors.toList()));
         }
+        Config config = ConfigUtil.CONFIG;
+        if (!config.getQbRenameTitle() || !config.getBackRss()) {
+            return items;
+        }
         items = CollUtil.distinct(items, Item::getReName, false);
         items.sort(Comparator.comparingDouble(Item::getEpisode));
         return items;
     }
 
+    /**
+     * 获取订阅的 rss 地址, 主 rss 在前
+     *
+     * @param ani
+     * @return
+     */
+    public static List<String> getUrls(Ani ani) {
+        List<String> urls = new ArrayList<>();
+        urls.add(ani.getUrl());
+
+        Config config = ConfigUtil.CONFIG;
+        Boolean qbRenameTitle = config.getQbRenameTitle();
+        if (!qbRenameTitle || !config.getBackRss()) {
+            return urls;
+        }
+        for (Ani.BackRss rss : ani.getBackRssList()) {
+            urls.add(rss.getUrl());
+        }
+        return urls;
+    }
+
     /**
      * 校验参数
      *
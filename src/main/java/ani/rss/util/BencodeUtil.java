@@ -0,0 +1,155 @@
+package ani.rss.util;
+
+import cn.hutool.crypto.digest.DigestUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 校验 bencode 编码的种子文件
+ */
+public class BencodeUtil {
+
+    private static final byte[] INFO = "info".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 最大嵌套层数
+     */
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * 校验种子文件并计算 infoHash
+     *
+     * @param bytes 种子文件内容
+     * @return 小写的 infoHash
+     * @throws IllegalArgumentException 不是完整的种子文件
+     */
+    public static String getInfoHash(byte[] bytes) {
+        if (bytes.length < 1 || bytes[0] != 'd') {
+            throw new IllegalArgumentException("不是有效的种子文件");
+        }
+        int infoStart = -1;
+        int infoEnd = -1;
+        int i = 1;
+        while (at(bytes, i) != 'e') {
+            int keyEnd = skipString(bytes, i);
+            byte[] key = Arrays.copyOfRange(bytes, stringStart(bytes, i), keyEnd);
+            int valueEnd = skip(bytes, keyEnd, 1);
+            if (Arrays.equals(key, INFO)) {
+                infoStart = keyEnd;
+                infoEnd = valueEnd;
+            }
+            i = valueEnd;
+        }
+        i++;
+        // 允许结尾的空白
+        for (; i < bytes.length; i++) {
+            if (!Character.isWhitespace(bytes[i])) {
+                throw new IllegalArgumentException("种子文件结尾存在多余内容");
+            }
+        }
+        if (infoStart < 0 || bytes[infoStart] != 'd') {
+            throw new IllegalArgumentException("种子文件缺少 info");
+        }
+        return DigestUtil.sha1Hex(Arrays.copyOfRange(bytes, infoStart, infoEnd));
+    }
+
+    /**
+     * 跳过一个值
+     *
+     * @param bytes
+     * @param i     值的开始位置
+     * @param depth 当前嵌套层数
+     * @return 值的结束位置
+     */
+    private static int skip(byte[] bytes, int i, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("种子文件嵌套过深");
+        }
+        byte b = at(bytes, i);
+        if (b == 'i') {
+            int end = i + 1;
+            if (at(bytes, end) == '-') {
+                end++;
+            }
+            int digits = end;
+            while (at(bytes, end) != 'e') {
+                if (!isDigit(bytes[end])) {
+                    throw new IllegalArgumentException("种子文件整数格式错误");
+                }
+                end++;
+            }
+            if (end == digits) {
+                throw new IllegalArgumentException("种子文件整数格式错误");
+            }
+            return end + 1;
+        }
+        if (b == 'l') {
+            i++;
+            while (at(bytes, i) != 'e') {
+                i = skip(bytes, i, depth + 1);
+            }
+            return i + 1;
+        }
+        if (b == 'd') {
+            i++;
+            while (at(bytes, i) != 'e') {
+                i = skipString(bytes, i);
+                i = skip(bytes, i, depth + 1);
+            }
+            return i + 1;
+        }
+        return skipString(bytes, i);
+    }
+
+    /**
+     * 跳过一个字符串
+     *
+     * @param bytes
+     * @param i     长度的开始位置
+     * @return 字符串的结束位置
+     */
+    private static int skipString(byte[] bytes, int i) {
+        int start = stringStart(bytes, i);
+        long length = 0;
+        for (int j = i; j < start - 1; j++) {
+            length = length * 10 + (bytes[j] - '0');
+        }
+        if (start + length > bytes.length) {
+            throw new IllegalArgumentException("种子文件不完整");
+        }
+        return (int) (start + length);
+    }
+
+    /**
+     * 字符串内容的开始位置
+     *
+     * @param bytes
+     * @param i     长度的开始位置
+     * @return
+     */
+    private static int stringStart(byte[] bytes, int i) {
+        int j = i;
+        while (at(bytes, j) != ':') {
+            if (!isDigit(bytes[j]) || j - i > 10) {
+                throw new IllegalArgumentException("种子文件字符串格式错误");
+            }
+            j++;
+        }
+        if (j == i) {
+            throw new IllegalArgumentException("种子文件字符串格式错误");
+        }
+        return j + 1;
+    }
+
+    private static byte at(byte[] bytes, int i) {
+        if (i >= bytes.length) {
+            throw new IllegalArgumentException("种子文件不完整");
+        }
+        return bytes[i];
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
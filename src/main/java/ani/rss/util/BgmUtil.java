@@ -7,10 +7,10 @@ import cn.hutool.cache.CacheUtil;
 import cn.hutool.core.date.DatePattern;
 import cn.hutool.core.date.LocalDateTimeUtil;
 import cn.hutool.core.lang.Assert;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.http.ContentType;
+import cn.hutool.http.Header;
 import cn.hutool.http.HttpRequest;
 import cn.hutool.http.HttpResponse;
 import cn.hutool.http.HttpUtil;
@@ -51,6 +51,7 @@ public class BgmUtil {
         if (nameCache.containsKey(name)) {
             return nameCache.get(name);
         }
+        HostLimitUtil.acquire(HostLimitUtil.BGM, host);
         HttpRequest httpRequest = HttpReq.get(host + "/search/subject/" + name, true);
 
         setToken(httpRequest);
@@ -89,7 +90,6 @@ public class BgmUtil {
                     // 次之使用第一个
                     return list.get(0).getAsJsonObject().get("id").getAsString();
                 });
-        ThreadUtil.sleep(1000);
         nameCache.put(name, id, TimeUnit.DAYS.toDays(1));
         return id;
     }
@@ -100,7 +100,7 @@ public class BgmUtil {
      * @param subjectId 番剧id
      */
     public static void collections(String subjectId) {
-        ThreadUtil.sleep(500);
+        HostLimitUtil.acquire(HostLimitUtil.BGM, host);
         Objects.requireNonNull(subjectId);
         HttpReq.post(host + "/v0/users/-/collections/" + subjectId, true)
                 .header("Authorization", "Bearer " + ConfigUtil.CONFIG.getBgmToken())
@@ -117,37 +117,35 @@ public class BgmUtil {
      * @return
      */
     public static List<JsonObject> getEpisodes(String subjectId, Integer type) {
-        ThreadUtil.sleep(500);
+        HostLimitUtil.acquire(HostLimitUtil.BGM, host);
         Objects.requireNonNull(subjectId);
         HttpRequest httpRequest = HttpReq.get(host + "/v0/episodes", true);
         setToken(httpRequest);
 
-        return httpRequest
-                .form("subject_id", subjectId)
-                .thenFunction(res -> {
-                    if (!res.isOk()) {
-                        return List.of();
-                    }
+        httpRequest.form("subject_id", subjectId);
+        return HttpReq.thenReader(httpRequest, (res, reader) -> {
+            if (!res.isOk()) {
+                return List.of();
+            }
 
-                    String body = res.body();
-                    if (!JSONUtil.isTypeJSON(body)) {
-                        return List.of();
-                    }
+            if (!isJson(res)) {
+                return List.of();
+            }
 
-                    return gson.fromJson(body, JsonObject.class)
-                            .get("data")
-                            .getAsJsonArray()
-                            .asList()
-                            .stream()
-                            .map(JsonElement::getAsJsonObject)
-                            .filter(itemObject -> {
-                                if (Objects.nonNull(type)) {
-                                    return type == itemObject.get("type").getAsInt();
-                                }
-                                return true;
-                            })
-                            .collect(Collectors.toList());
-                });
+            return gson.fromJson(reader, JsonObject.class)
+                    .get("data")
+                    .getAsJsonArray()
+                    .asList()
+                    .stream()
+                    .map(JsonElement::getAsJsonObject)
+                    .filter(itemObject -> {
+                        if (Objects.nonNull(type)) {
+                            return type == itemObject.get("type").getAsInt();
+                        }
+                        return true;
+                    })
+                    .collect(Collectors.toList());
+        });
     }
 
     /**
@@ -185,7 +183,7 @@ public class BgmUtil {
      * @param type      0 未看过, 1 想看, 2 看过
      */
     public static void collectionsEpisodes(String episodeId, Integer type) {
-        ThreadUtil.sleep(500);
+        HostLimitUtil.acquire(HostLimitUtil.BGM, host);
         Objects.requireNonNull(episodeId);
         HttpReq.put(host + "/v0/users/-/collections/-/episodes/" + episodeId, true)
                 .header("Authorization", "Bearer " + ConfigUtil.CONFIG.getBgmToken())
@@ -211,6 +209,7 @@ public class BgmUtil {
                     AniUtil.sync();
                 }
             }
+            HostLimitUtil.acquire(HostLimitUtil.RSS, MikanUtil.getMikanHost());
             bgmUrl = HttpReq.get(MikanUtil.getMikanHost() + "/Home/Bangumi/" + bangumiId, true)
                     .thenFunction(res -> {
                         org.jsoup.nodes.Document document = Jsoup.parse(res.body());
@@ -233,35 +232,44 @@ public class BgmUtil {
     }
 
     public static BigInfo getBgmInfo(String subjectId) {
+        HostLimitUtil.acquire(HostLimitUtil.BGM, host);
         HttpRequest httpRequest = HttpReq.get(host + "/v0/subjects/" + subjectId, true);
         setToken(httpRequest);
-        return httpRequest
-                .thenFunction(res -> {
-                    Assert.isTrue(res.isOk(), "status: {}", res.getStatus());
-                    String body = res.body();
-                    Assert.isTrue(JSONUtil.isTypeJSON(body), "no json");
-                    JsonObject jsonObject = gson.fromJson(body, JsonObject.class);
-                    BigInfo bigInfo = new BigInfo();
+        return HttpReq.thenReader(httpRequest, (res, reader) -> {
+            Assert.isTrue(res.isOk(), "status: {}", res.getStatus());
+            Assert.isTrue(isJson(res), "no json");
+            JsonObject jsonObject = gson.fromJson(reader, JsonObject.class);
+            BigInfo bigInfo = new BigInfo();
 
-                    String nameCn = jsonObject.get("name_cn").getAsString();
-                    String date = jsonObject.get("date").getAsString();
-                    String platform = jsonObject.get("platform").getAsString();
-                    int eps = jsonObject.get("eps").getAsInt();
+            String nameCn = jsonObject.get("name_cn").getAsString();
+            String date = jsonObject.get("date").getAsString();
+            String platform = jsonObject.get("platform").getAsString();
+            int eps = jsonObject.get("eps").getAsInt();
 
-                    double score = 0.0;
-                    JsonObject rating = jsonObject.getAsJsonObject("rating");
-                    if (Objects.nonNull(rating)) {
-                        score = rating.get("score").getAsDouble();
-                    }
+            double score = 0.0;
+            JsonObject rating = jsonObject.getAsJsonObject("rating");
+            if (Objects.nonNull(rating)) {
+                score = rating.get("score").getAsDouble();
+            }
 
-                    return bigInfo
-                            .setSubjectId(subjectId)
-                            .setNameCn(nameCn)
-                            .setDate(LocalDateTimeUtil.parse(date, DatePattern.NORM_DATE_PATTERN))
-                            .setEps(eps)
-                            .setScore(score)
-                            .setOva("OVA".equalsIgnoreCase(platform));
-                });
+            return bigInfo
+                    .setSubjectId(subjectId)
+                    .setNameCn(nameCn)
+                    .setDate(LocalDateTimeUtil.parse(date, DatePattern.NORM_DATE_PATTERN))
+                    .setEps(eps)
+                    .setScore(score)
+                    .setOva("OVA".equalsIgnoreCase(platform));
+        });
+    }
+
+    /**
+     * 响应是否为 json, 以流的方式读取时无法预先检查内容
+     *
+     * @param res
+     * @return
+     */
+    private static Boolean isJson(HttpResponse res) {
+        return StrUtil.containsIgnoreCase(res.header(Header.CONTENT_TYPE), "json");
     }
 
     public static void setToken(HttpRequest httpRequest) {
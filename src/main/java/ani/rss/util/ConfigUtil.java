@@ -1,6 +1,7 @@
 package ani.rss.util;
 
 import ani.rss.entity.Config;
+import ani.rss.entity.HostLimit;
 import ani.rss.entity.Login;
 import ani.rss.entity.MyMailAccount;
 import cn.hutool.core.bean.BeanUtil;
@@ -29,6 +30,8 @@ public class ConfigUtil {
         String password = MD5.create().digestHex("admin");
         CONFIG.setSleep(15)
                 .setMikanHost("https://mikanime.tv")
+                .setMikanMyBangumi(false)
+                .setMikanMyBangumiUrl("")
                 .setRenameSleep(1)
                 .setRename(true)
                 .setRss(true)
@@ -57,6 +60,7 @@ public class ConfigUtil {
                 .setProxyUsername("")
                 .setProxyPassword("")
                 .setDownloadCount(0)
+                .setDownloadQueueOrder("episode")
                 .setMail(false)
                 .setMailAddressee("")
                 .setMailAccount(
@@ -69,6 +73,16 @@ public class ConfigUtil {
                 )
                 .setLogin(new Login().setUsername("admin").setPassword(password))
                 .setExclude(List.of("720", "\\d{1,2}-\\d{1,2}", "合集"))
+                .setHostLimits(List.of(
+                        new HostLimit().setType("rss").setHost("mikanani.me").setConcurrency(2).setInterval(500L).setBurst(1),
+                        new HostLimit().setType("rss").setHost("mikanime.tv").setConcurrency(2).setInterval(500L).setBurst(1),
+                        new HostLimit().setType("rss").setHost("nyaa.si").setConcurrency(2).setInterval(500L).setBurst(1),
+                        new HostLimit().setType("rss").setHost("share.dmhy.org").setConcurrency(1).setInterval(1000L).setBurst(1),
+                        new HostLimit().setType("rss").setHost("*").setConcurrency(2).setInterval(500L).setBurst(1),
+                        new HostLimit().setType("download").setHost("*").setConcurrency(4).setInterval(200L).setBurst(5),
+                        new HostLimit().setType("bgm").setHost("*").setConcurrency(2).setInterval(500L).setBurst(2)
+                ))
+                .setRssCacheTime(10)
                 .setImportExclude(false)
                 .setEnabledExclude(false)
                 .setTelegram(false)
@@ -0,0 +1,203 @@
+package ani.rss.util;
+
+import ani.rss.entity.Ani;
+import ani.rss.entity.Config;
+import ani.rss.entity.Item;
+import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 全局等待下载队列
+ * <p>
+ * 开启同时下载数量限制后, 新条目不再由各订阅直接添加, 而是进入队列,
+ * 在有空位时 (rss 任务结束、重命名任务检查任务列表后) 按设置的顺序统一添加
+ */
+public class DownloadQueueUtil {
+
+    /**
+     * 最早放送
+     */
+    public static final String AIR_DATE = "airDate";
+
+    /**
+     * 最小集数
+     */
+    public static final String EPISODE = "episode";
+
+    /**
+     * 订阅优先级
+     */
+    public static final String PRIORITY = "priority";
+
+    /**
+     * infoHash -> 等待中的条目
+     */
+    private static final Map<String, Pending> QUEUE = new LinkedHashMap<>();
+
+    /**
+     * 已出队条目的等待时间总和
+     */
+    private static long totalWait = 0;
+
+    private static long pollCount = 0;
+
+    /**
+     * 同时下载数量限制是否开启
+     *
+     * @return
+     */
+    public static Boolean enable() {
+        Config config = ConfigUtil.CONFIG;
+        return ObjectUtil.defaultIfNull(config.getDownloadCount(), 0) > 0;
+    }
+
+    /**
+     * 加入队列, 已存在时更新条目但保留入队时间
+     *
+     * @param ani
+     * @param item
+     */
+    public static synchronized void add(Ani ani, Item item) {
+        String key = getKey(item);
+        Pending pending = QUEUE.get(key);
+        long addTime = Objects.isNull(pending) ? System.currentTimeMillis() : pending.getAddTime();
+        QUEUE.put(key, new Pending(ani, item, addTime));
+    }
+
+    /**
+     * 取出排序最靠前的条目
+     *
+     * @return 队列为空时为 null
+     */
+    public static synchronized Pending poll() {
+        Comparator<Pending> comparator = getComparator(ConfigUtil.CONFIG.getDownloadQueueOrder());
+        Pending first = null;
+        for (Pending pending : QUEUE.values()) {
+            if (Objects.isNull(first) || comparator.compare(pending, first) < 0) {
+                first = pending;
+            }
+        }
+        if (Objects.isNull(first)) {
+            return null;
+        }
+        QUEUE.remove(getKey(first.getItem()));
+        totalWait += System.currentTimeMillis() - first.getAddTime();
+        pollCount++;
+        return first;
+    }
+
+    /**
+     * 放回已取出但未能添加的条目, 保留入队时间, 不计入等待时间统计
+     *
+     * @param pending
+     */
+    public static synchronized void requeue(Pending pending) {
+        String key = getKey(pending.getItem());
+        Pending newPending = QUEUE.get(key);
+        if (Objects.nonNull(newPending)) {
+            // 期间已重新入队, 使用新的条目, 保留原有的入队时间
+            pending = new Pending(newPending.getAni(), newPending.getItem(), pending.getAddTime());
+        }
+        QUEUE.put(key, pending);
+        totalWait -= System.currentTimeMillis() - pending.getAddTime();
+        pollCount--;
+    }
+
+    /**
+     * 移除订阅的所有等待条目
+     *
+     * @param ani
+     */
+    public static synchronized void remove(Ani ani) {
+        Iterator<Pending> iterator = QUEUE.values().iterator();
+        while (iterator.hasNext()) {
+            if (Objects.equals(iterator.next().getAni().getId(), ani.getId())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public static synchronized int size() {
+        return QUEUE.size();
+    }
+
+    /**
+     * 队列统计
+     *
+     * @return size 队列长度, maxWait 当前最长等待时间, avgWait 已出队条目的平均等待时间 (毫秒)
+     */
+    public static synchronized Map<String, Object> stats() {
+        long now = System.currentTimeMillis();
+        long maxWait = QUEUE.values()
+                .stream()
+                .mapToLong(pending -> now - pending.getAddTime())
+                .max()
+                .orElse(0);
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", QUEUE.size());
+        map.put("maxWait", maxWait);
+        map.put("avgWait", pollCount > 0 ? totalWait / pollCount : 0);
+        map.put("order", ConfigUtil.CONFIG.getDownloadQueueOrder());
+        return map;
+    }
+
+    private static String getKey(Item item) {
+        String infoHash = item.getInfoHash();
+        if (InfoHashSet.isInfoHash(infoHash)) {
+            return InfoHashSet.normalize(infoHash);
+        }
+        return SeenUtil.getKey(item);
+    }
+
+    /**
+     * 排序, 相同时先入队的优先
+     *
+     * @param order
+     * @return
+     */
+    private static Comparator<Pending> getComparator(String order) {
+        Comparator<Pending> episode = Comparator.comparingDouble(
+                pending -> ObjectUtil.defaultIfNull(pending.getItem().getEpisode(), 0.0));
+        Comparator<Pending> airDate = Comparator.comparingInt(pending -> {
+            Ani ani = pending.getAni();
+            return ObjectUtil.defaultIfNull(ani.getYear(), 0) * 10000
+                    + ObjectUtil.defaultIfNull(ani.getMonth(), 0) * 100
+                    + ObjectUtil.defaultIfNull(ani.getDate(), 0);
+        });
+        // 数值越大越优先
+        Comparator<Pending> priority = Comparator.comparingInt(
+                pending -> -ObjectUtil.defaultIfNull(pending.getAni().getPriority(), 0));
+
+        Comparator<Pending> comparator;
+        if (StrUtil.equals(order, AIR_DATE)) {
+            comparator = airDate.thenComparing(episode);
+        } else if (StrUtil.equals(order, PRIORITY)) {
+            comparator = priority.thenComparing(episode);
+        } else {
+            comparator = episode.thenComparing(airDate);
+        }
+        return comparator.thenComparingLong(Pending::getAddTime);
+    }
+
+    /**
+     * 等待中的条目
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Pending {
+        private final Ani ani;
+        private final Item item;
+        /**
+         * 入队时间
+         */
+        private final long addTime;
+    }
+}
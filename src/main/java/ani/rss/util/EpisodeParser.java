@@ -0,0 +1,189 @@
+package ani.rss.util;
+
+import ani.rss.entity.Ani;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+
+/**
+ * 从标题中获取集数
+ * <p>
+ * 与旧版正则 (.*|\[.*])( -? \d+(\.5)?|\[\d+(\.5)?]|...)(.*) 结果一致, 但不回溯:
+ * 贪婪的前缀使得最终命中的是最靠右的位置, 因此从右向左逐个位置尝试, 每个位置只需检查常数个字符
+ * <p>
+ * 支持 " - 05" "[05]" "[05v2]" "第05话" "[第05话]" "[05END]" "EP05" 以及对应的 .5
+ */
+public class EpisodeParser {
+
+    /**
+     * 获取集数, 开启自定义集数规则时使用自定义规则
+     *
+     * @param ani
+     * @param title
+     * @return 例如 05 或 05.5, 未获取到返回空字符串
+     */
+    public static String get(Ani ani, String title) {
+        if (!ani.getCustomEpisode()) {
+            return get(title);
+        }
+        String e = ReUtil.get(ani.getCustomEpisodeStr(), title, ani.getCustomEpisodeGroupIndex());
+        if (StrUtil.isBlank(e)) {
+            return "";
+        }
+        return StrUtil.nullToEmpty(ReUtil.get("\\d+(\\.5)?", e, 0));
+    }
+
+    /**
+     * 获取集数
+     *
+     * @param title
+     * @return 例如 05 或 05.5, 未获取到返回空字符串
+     */
+    public static String get(String title) {
+        if (StrUtil.isEmpty(title)) {
+            return "";
+        }
+        for (int i = title.length() - 1; i >= 0; i--) {
+            int start = match(title, i);
+            if (start < 0) {
+                continue;
+            }
+            int end = digitEnd(title, start);
+            if (is5(title, end)) {
+                end += 2;
+            }
+            return title.substring(start, end);
+        }
+        return "";
+    }
+
+    /**
+     * 在 i 处尝试所有格式
+     *
+     * @return 集数第一个数字的位置, 不匹配返回 -1
+     */
+    private static int match(String s, int i) {
+        char c = s.charAt(i);
+        int j = i + 1;
+        switch (c) {
+            // " - 05" "  05"
+            case ' ': {
+                if (charAt(s, j) == '-' && charAt(s, j + 1) == ' ' && isDigit(s, j + 2)) {
+                    return j + 2;
+                }
+                if (charAt(s, j) == ' ' && isDigit(s, j + 1)) {
+                    return j + 1;
+                }
+                return -1;
+            }
+            // "第05话"
+            case '第': {
+                if (!isDigit(s, j)) {
+                    return -1;
+                }
+                int p = digitEnd(s, j);
+                if (isEpisodeChar(s, p) || (is5(s, p) && isEpisodeChar(s, p + 2))) {
+                    return j;
+                }
+                return -1;
+            }
+            // "EP05" "E05"
+            case 'E':
+            case 'e': {
+                char p = charAt(s, j);
+                if ((p == 'P' || p == 'p') && isDigit(s, j + 1)) {
+                    return j + 1;
+                }
+                if (isDigit(s, j)) {
+                    return j;
+                }
+                return -1;
+            }
+            case '[': {
+                return bracket(s, j);
+            }
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * "[05]" "[05v2]" "[05END]" "[第05话]" "[05话]"
+     */
+    private static int bracket(String s, int j) {
+        if (charAt(s, j) == '第') {
+            if (!isDigit(s, j + 1)) {
+                return -1;
+            }
+            int p = digitEnd(s, j + 1);
+            if (episodeEnd(s, p) || (is5(s, p) && episodeEnd(s, p + 2))) {
+                return j + 1;
+            }
+            return -1;
+        }
+        if (!isDigit(s, j)) {
+            return -1;
+        }
+        int p = digitEnd(s, j);
+        if (bracketEnd(s, p) || (is5(s, p) && bracketEnd(s, p + 2))) {
+            return j;
+        }
+        return -1;
+    }
+
+    /**
+     * 数字 (及 .5) 之后的部分
+     */
+    private static boolean bracketEnd(String s, int q) {
+        // [05]
+        if (charAt(s, q) == ']') {
+            return true;
+        }
+        // [05话]
+        if (episodeEnd(s, q)) {
+            return true;
+        }
+        // [05v2] [05 v2], 中间可以有任意一个字符
+        if (version(s, q) || (q < s.length() && version(s, q + 1))) {
+            return true;
+        }
+        // [05END] [05 END]
+        return s.startsWith("END]", q) || (q < s.length() && s.startsWith("END]", q + 1));
+    }
+
+    private static boolean version(String s, int q) {
+        char c = charAt(s, q);
+        return (c == 'v' || c == 'V') && isDigit(s, q + 1) && charAt(s, q + 2) == ']';
+    }
+
+    private static boolean episodeEnd(String s, int q) {
+        return isEpisodeChar(s, q) && charAt(s, q + 1) == ']';
+    }
+
+    private static boolean isEpisodeChar(String s, int i) {
+        char c = charAt(s, i);
+        return c == '话' || c == '話' || c == '集';
+    }
+
+    private static boolean is5(String s, int i) {
+        return charAt(s, i) == '.' && charAt(s, i + 1) == '5';
+    }
+
+    private static int digitEnd(String s, int i) {
+        while (isDigit(s, i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(String s, int i) {
+        char c = charAt(s, i);
+        return c >= '0' && c <= '9';
+    }
+
+    private static char charAt(String s, int i) {
+        if (i < s.length()) {
+            return s.charAt(i);
+        }
+        return 0;
+    }
+}
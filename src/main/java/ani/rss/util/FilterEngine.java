@@ -0,0 +1,365 @@
+package ani.rss.util;
+
+import ani.rss.entity.Ani;
+import ani.rss.entity.Config;
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.ReUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+/**
+ * 订阅的排除/匹配规则, 编译一次后缓存
+ * <p>
+ * 排除与匹配的纯文本规则使用同一个 Aho–Corasick 自动机, 正则规则合并为一个分支表达式, 每个标题只需扫描一次
+ */
+@Slf4j
+public class FilterEngine {
+
+    private static final Cache<String, FilterEngine> CACHE = CacheUtil.newLRUCache(4096);
+
+    /**
+     * 全局配置版本, 全局排除发生改变时递增
+     */
+    private static final AtomicInteger VERSION = new AtomicInteger(0);
+
+    private final int version;
+    private final List<String> exclude;
+    private final List<String> match;
+    private final Boolean globalExclude;
+
+    private static final int EXCLUDE = 1;
+    private static final int MATCH = 2;
+
+    private final AhoCorasick literals;
+    private final List<Pattern> excludePatterns;
+    private final List<Pattern> matchPatterns;
+
+    private FilterEngine(Ani ani, List<String> globalExcludeList, int version) {
+        this.version = version;
+        // 规则中可能有 null, 编译时跳过
+        this.exclude = copy(ani.getExclude());
+        this.match = copy(ani.getMatch());
+        this.globalExclude = ani.getGlobalExclude();
+
+        List<String> excludeList = new ArrayList<>(exclude);
+        if (Boolean.TRUE.equals(globalExclude)) {
+            excludeList.addAll(copy(globalExcludeList));
+        }
+        Map<String, Integer> literalMap = new LinkedHashMap<>();
+        this.excludePatterns = compile(excludeList, EXCLUDE, literalMap);
+        this.matchPatterns = compile(match, MATCH, literalMap);
+        this.literals = new AhoCorasick(literalMap);
+    }
+
+    /**
+     * 获取订阅的规则, 规则未改变时复用缓存
+     *
+     * @param ani
+     * @return
+     */
+    public static FilterEngine of(Ani ani) {
+        Config config = ConfigUtil.CONFIG;
+        int version = VERSION.get();
+        String id = Objects.toString(ani.getId(), "");
+        FilterEngine filterEngine = CACHE.get(id, false);
+        if (Objects.nonNull(filterEngine) && filterEngine.same(ani, version)) {
+            return filterEngine;
+        }
+        filterEngine = new FilterEngine(ani, config.getExclude(), version);
+        CACHE.put(id, filterEngine);
+        log.debug("编译过滤规则 {}", ani.getTitle());
+        return filterEngine;
+    }
+
+    /**
+     * 订阅规则发生改变
+     *
+     * @param ani
+     */
+    public static void remove(Ani ani) {
+        CACHE.remove(Objects.toString(ani.getId(), ""));
+    }
+
+    /**
+     * 全局规则发生改变
+     */
+    public static void clear() {
+        VERSION.incrementAndGet();
+        CACHE.clear();
+    }
+
+    private boolean same(Ani ani, int version) {
+        return this.version == version &&
+                Objects.equals(globalExclude, ani.getGlobalExclude()) &&
+                exclude.equals(ObjectUtil.defaultIfNull(ani.getExclude(), List.of())) &&
+                match.equals(ObjectUtil.defaultIfNull(ani.getMatch(), List.of()));
+    }
+
+    private static List<String> copy(List<String> list) {
+        return new ArrayList<>(ObjectUtil.defaultIfNull(list, List.of()));
+    }
+
+    /**
+     * 是否通过规则: 未被排除 (订阅排除与全局排除) 且满足匹配规则, 无匹配规则时全部满足
+     * <p>
+     * 排除与匹配的纯文本规则在同一个自动机中, 标题只扫描一次
+     *
+     * @param title
+     * @return
+     */
+    public Boolean accept(String title) {
+        if (Objects.isNull(title)) {
+            return false;
+        }
+        int found = literals.find(title);
+        if ((found & EXCLUDE) != 0) {
+            return false;
+        }
+        if (find(excludePatterns, title)) {
+            return false;
+        }
+        if (match.isEmpty() || (found & MATCH) != 0) {
+            return true;
+        }
+        return find(matchPatterns, title);
+    }
+
+    private static boolean find(List<Pattern> patterns, String title) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(title).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 正则规则, 纯文本规则加入自动机
+     *
+     * @param rules
+     * @param flag        纯文本规则命中时的标记
+     * @param literalMap  纯文本规则 -> 标记
+     * @return 合并后的正则
+     */
+    private static List<Pattern> compile(List<String> rules, int flag, Map<String, Integer> literalMap) {
+        List<String> regexList = new ArrayList<>();
+        for (String rule : new LinkedHashSet<>(rules)) {
+            if (Objects.isNull(rule)) {
+                continue;
+            }
+            if (isLiteral(rule)) {
+                literalMap.merge(rule, flag, (a, b) -> a | b);
+                continue;
+            }
+            // 与 ReUtil.contains 一致, 无效的正则直接抛出
+            Pattern.compile(rule, Pattern.DOTALL);
+            regexList.add(rule);
+        }
+        return merge(regexList);
+    }
+
+    /**
+     * 合并为一个分支表达式, 含反向引用的规则会受分组编号影响, 单独保留
+     */
+    private static List<Pattern> merge(List<String> regexList) {
+        List<Pattern> patterns = new ArrayList<>();
+        List<String> mergeList = new ArrayList<>();
+        for (String regex : regexList) {
+            if (ReUtil.contains("\\\\([1-9]|k<)", regex)) {
+                patterns.add(Pattern.compile(regex, Pattern.DOTALL));
+                continue;
+            }
+            mergeList.add(regex);
+        }
+        if (mergeList.isEmpty()) {
+            return patterns;
+        }
+        String merged = mergeList.stream()
+                .map(s -> "(?:" + s + ")")
+                .collect(Collectors.joining("|"));
+        try {
+            patterns.add(0, Pattern.compile(merged, Pattern.DOTALL));
+        } catch (PatternSyntaxException e) {
+            // 例如重复的命名分组
+            for (String regex : mergeList) {
+                patterns.add(Pattern.compile(regex, Pattern.DOTALL));
+            }
+        }
+        return patterns;
+    }
+
+    private static boolean isLiteral(String rule) {
+        for (int i = 0; i < rule.length(); i++) {
+            if ("\\^$.|?*+()[]{}".indexOf(rule.charAt(i)) > -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 多模式字符串匹配, 每个模式带有标记, 返回命中的所有标记
+     * <p>
+     * 状态转移预先展开为 状态 × 字符 的 int 数组, 字符先映射为模式中出现过的字符的序号,
+     * 扫描时每个字符只需一次查表
+     */
+    private static class AhoCorasick {
+        /**
+         * 字符 -> 序号 的开放寻址表, 0 表示空位, 序号从 1 开始
+         */
+        private final char[] chars;
+        private final int[] charIndex;
+        private final int charMask;
+
+        /**
+         * 字符数 + 1, 序号 0 表示未出现在模式中的字符
+         */
+        private final int width;
+
+        /**
+         * 状态 * width + 字符序号 -> 下一个状态
+         */
+        private final int[] next;
+
+        /**
+         * 到达此状态时命中的标记
+         */
+        private final int[] output;
+
+        /**
+         * 空字符串模式的标记, 任意位置都可以找到
+         */
+        private final int empty;
+
+        /**
+         * 包含所有标记, 命中后可以停止扫描
+         */
+        private final int all;
+
+        AhoCorasick(Map<String, Integer> words) {
+            // 字符表
+            Set<Character> charSet = new LinkedHashSet<>();
+            int empty = 0;
+            int all = 0;
+            int nodeCount = 1;
+            for (Map.Entry<String, Integer> entry : words.entrySet()) {
+                String word = entry.getKey();
+                all |= entry.getValue();
+                if (word.isEmpty()) {
+                    empty |= entry.getValue();
+                    continue;
+                }
+                nodeCount += word.length();
+                for (int i = 0; i < word.length(); i++) {
+                    charSet.add(word.charAt(i));
+                }
+            }
+            this.empty = empty;
+            this.all = all;
+
+            int capacity = 16;
+            while (capacity < charSet.size() * 2) {
+                capacity <<= 1;
+            }
+            chars = new char[capacity];
+            charIndex = new int[capacity];
+            charMask = capacity - 1;
+            int index = 1;
+            for (char c : charSet) {
+                int i = c & charMask;
+                while (charIndex[i] != 0) {
+                    i = (i + 1) & charMask;
+                }
+                chars[i] = c;
+                charIndex[i] = index++;
+            }
+            width = index;
+
+            // 字典树, 0 表示没有子节点 (根节点不会是子节点)
+            int[] trie = new int[nodeCount * width];
+            int[] out = new int[nodeCount];
+            int size = 1;
+            for (Map.Entry<String, Integer> entry : words.entrySet()) {
+                String word = entry.getKey();
+                int state = 0;
+                for (int i = 0; i < word.length(); i++) {
+                    int c = indexOf(word.charAt(i));
+                    int s = trie[state * width + c];
+                    if (s == 0) {
+                        s = size++;
+                        trie[state * width + c] = s;
+                    }
+                    state = s;
+                }
+                if (state > 0) {
+                    out[state] |= entry.getValue();
+                }
+            }
+
+            // 按层展开失配转移, 得到完整的状态转移表
+            next = Arrays.copyOf(trie, size * width);
+            output = Arrays.copyOf(out, size);
+            int[] fail = new int[size];
+            int[] queue = new int[size];
+            int head = 0;
+            int tail = 0;
+            for (int c = 1; c < width; c++) {
+                int s = next[c];
+                if (s != 0) {
+                    queue[tail++] = s;
+                }
+            }
+            while (head < tail) {
+                int state = queue[head++];
+                output[state] |= output[fail[state]];
+                for (int c = 1; c < width; c++) {
+                    int s = next[state * width + c];
+                    if (s == 0) {
+                        next[state * width + c] = next[fail[state] * width + c];
+                        continue;
+                    }
+                    fail[s] = next[fail[state] * width + c];
+                    queue[tail++] = s;
+                }
+            }
+        }
+
+        private int indexOf(char c) {
+            int i = c & charMask;
+            while (true) {
+                int index = charIndex[i];
+                if (index == 0 || chars[i] == c) {
+                    return index;
+                }
+                i = (i + 1) & charMask;
+            }
+        }
+
+        /**
+         * @param text
+         * @return 命中的标记
+         */
+        int find(String text) {
+            int found = empty;
+            if (width == 1 || found == all) {
+                return found;
+            }
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                state = next[state * width + indexOf(text.charAt(i))];
+                found |= output[state];
+                if (found == all) {
+                    break;
+                }
+            }
+            return found;
+        }
+    }
+}
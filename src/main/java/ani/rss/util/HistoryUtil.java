@@ -0,0 +1,321 @@
+package ani.rss.util;
+
+import ani.rss.entity.Ani;
+import ani.rss.entity.History;
+import ani.rss.entity.Item;
+import ani.rss.entity.Seen;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 下载记录, 按 infoHash 去重
+ * <p>
+ * 每条记录追加一行写入 history.jsonl, 同一 infoHash 以最后一行为准。
+ * 内存中只保留已下载的 infoHash 用于去重, 查询时再从文件读取完整记录
+ */
+@Slf4j
+public class HistoryUtil {
+
+    private static final Gson GSON = new GsonBuilder()
+            .disableHtmlEscaping()
+            .create();
+
+    /**
+     * 已下载的 infoHash, 用于去重
+     */
+    private static final InfoHashSet DOWNLOADED_SET = new InfoHashSet();
+
+    /**
+     * 已下载的不是 infoHash 格式的 key
+     */
+    private static final Set<String> DOWNLOADED_OTHER_SET = ConcurrentHashMap.newKeySet();
+
+    public static File getHistoryFile() {
+        File configDir = ConfigUtil.getConfigDir();
+        return new File(configDir + File.separator + "history.jsonl");
+    }
+
+    /**
+     * 加载下载记录, 第一次使用时导入已有的种子文件
+     */
+    public static synchronized void load() {
+        File historyFile = getHistoryFile();
+        if (!historyFile.exists()) {
+            importTorrents();
+            return;
+        }
+        int lines = 0;
+        try (BufferedReader reader = FileUtil.getUtf8Reader(historyFile)) {
+            String line;
+            while (Objects.nonNull(line = reader.readLine())) {
+                History history = parse(line);
+                if (Objects.isNull(history)) {
+                    continue;
+                }
+                lines++;
+                put(history);
+            }
+        } catch (Exception e) {
+            log.error("加载下载记录失败 {}", historyFile);
+            log.debug(e.getMessage(), e);
+            return;
+        }
+        // 添加失败的记录不在集合中, 只用于估计重复的行数
+        int size = DOWNLOADED_SET.size() + DOWNLOADED_OTHER_SET.size();
+        log.debug("加载下载记录 共{}个", size);
+        // 重复的行过多时重新写入
+        if (lines > size * 2 + 100) {
+            compact();
+        }
+    }
+
+    /**
+     * 是否已经下载过, 添加失败的记录除外
+     *
+     * @param infoHash
+     * @return
+     */
+    public static Boolean downloaded(String infoHash) {
+        if (StrUtil.isBlank(infoHash)) {
+            return false;
+        }
+        if (InfoHashSet.isInfoHash(infoHash)) {
+            return DOWNLOADED_SET.contains(infoHash);
+        }
+        return DOWNLOADED_OTHER_SET.contains(InfoHashSet.normalize(infoHash));
+    }
+
+    /**
+     * 记录条目的处理结果
+     *
+     * @param ani
+     * @param item
+     * @param state
+     */
+    public static void add(Ani ani, Item item, Seen.State state) {
+        String infoHash = item.getInfoHash();
+        if (StrUtil.isBlank(infoHash)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // 首次记录时间在读取时取同一 infoHash 最早的一行
+        History history = new History()
+                .setInfoHash(InfoHashSet.normalize(infoHash))
+                .setAniId(ani.getId())
+                .setTitle(ani.getTitle())
+                .setEpisode(item.getEpisode())
+                .setReName(item.getReName())
+                .setState(state)
+                .setCreateTime(now)
+                .setUpdateTime(now);
+        add(history);
+    }
+
+    private static synchronized void add(History history) {
+        put(history);
+        try {
+            FileUtil.appendUtf8String(GSON.toJson(history) + "\n", getHistoryFile());
+        } catch (Exception e) {
+            log.error("保存下载记录失败 {}", history.getReName());
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    private static void put(History history) {
+        String infoHash = history.getInfoHash();
+        boolean downloaded = history.getState() != Seen.State.FAILED;
+        if (InfoHashSet.isInfoHash(infoHash)) {
+            if (downloaded) {
+                DOWNLOADED_SET.add(infoHash);
+            } else {
+                DOWNLOADED_SET.remove(infoHash);
+            }
+            return;
+        }
+        if (downloaded) {
+            DOWNLOADED_OTHER_SET.add(infoHash);
+        } else {
+            DOWNLOADED_OTHER_SET.remove(infoHash);
+        }
+    }
+
+    /**
+     * 删除订阅的下载记录, 之后可以重新下载
+     *
+     * @param ani
+     */
+    public static synchronized void remove(Ani ani) {
+        String aniId = ani.getId();
+        Map<String, History> historyMap = read();
+        List<History> histories = historyMap.values()
+                .stream()
+                .filter(it -> aniId.equals(it.getAniId()))
+                .collect(Collectors.toList());
+        if (histories.isEmpty()) {
+            return;
+        }
+        for (History history : histories) {
+            String infoHash = history.getInfoHash();
+            historyMap.remove(infoHash);
+            DOWNLOADED_SET.remove(infoHash);
+            DOWNLOADED_OTHER_SET.remove(infoHash);
+        }
+        write(historyMap);
+        log.info("删除下载记录 {} 共{}个", ani.getTitle(), histories.size());
+    }
+
+    /**
+     * 查询下载记录, 按时间倒序
+     *
+     * @param aniId 订阅id, 为空时查询全部
+     * @param start 开始时间 毫秒, 可为空
+     * @param end   结束时间 毫秒, 可为空
+     * @return
+     */
+    public static synchronized List<History> list(String aniId, Long start, Long end) {
+        return read().values()
+                .stream()
+                .filter(it -> StrUtil.isBlank(aniId) || aniId.equals(it.getAniId()))
+                .filter(it -> Objects.isNull(start) || it.getUpdateTime() >= start)
+                .filter(it -> Objects.isNull(end) || it.getUpdateTime() < end)
+                .sorted(Comparator.comparing(History::getUpdateTime).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 读取所有下载记录, 同一 infoHash 以最后一行为准, 首次记录时间取最早的一行
+     *
+     * @return infoHash -> 下载记录
+     */
+    private static Map<String, History> read() {
+        Map<String, History> historyMap = new HashMap<>();
+        File historyFile = getHistoryFile();
+        if (!historyFile.exists()) {
+            return historyMap;
+        }
+        try (BufferedReader reader = FileUtil.getUtf8Reader(historyFile)) {
+            String line;
+            while (Objects.nonNull(line = reader.readLine())) {
+                History history = parse(line);
+                if (Objects.isNull(history)) {
+                    continue;
+                }
+                History old = historyMap.put(history.getInfoHash(), history);
+                if (Objects.nonNull(old) && old.getCreateTime() < history.getCreateTime()) {
+                    history.setCreateTime(old.getCreateTime());
+                }
+            }
+        } catch (Exception e) {
+            log.error("读取下载记录失败 {}", historyFile);
+            log.debug(e.getMessage(), e);
+        }
+        return historyMap;
+    }
+
+    private static History parse(String line) {
+        if (StrUtil.isBlank(line)) {
+            return null;
+        }
+        try {
+            return GSON.fromJson(line, History.class);
+        } catch (Exception e) {
+            // 最后一行可能写入不完整
+            log.warn("跳过无法解析的下载记录 {}", line);
+            return null;
+        }
+    }
+
+    /**
+     * 去除重复的行
+     */
+    private static synchronized void compact() {
+        write(read());
+    }
+
+    private static void write(Map<String, History> historyMap) {
+        File historyFile = getHistoryFile();
+        File tmp = new File(historyFile + ".tmp");
+        try {
+            List<String> lines = historyMap.values()
+                    .stream()
+                    .sorted(Comparator.comparing(History::getUpdateTime))
+                    .map(GSON::toJson)
+                    .collect(Collectors.toList());
+            FileUtil.writeUtf8Lines(lines, tmp);
+            Files.move(tmp.toPath(), historyFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.debug("整理下载记录 共{}个", lines.size());
+        } catch (Exception e) {
+            log.error("整理下载记录失败 {}", historyFile);
+            log.error(e.getMessage(), e);
+        } finally {
+            FileUtil.del(tmp);
+        }
+    }
+
+    /**
+     * 导入 torrents 文件夹中已有的种子文件
+     */
+    private static void importTorrents() {
+        File torrents = new File(ConfigUtil.getConfigDir() + File.separator + "torrents");
+        if (!torrents.exists()) {
+            FileUtil.touch(getHistoryFile());
+            return;
+        }
+        // 标题 -> 订阅
+        Map<String, Ani> aniMap = new HashMap<>();
+        for (Ani ani : AniUtil.ANI_LIST) {
+            aniMap.put(ani.getTitle(), ani);
+        }
+        List<String> lines = new ArrayList<>();
+        // 同一个种子可能同时存在 .torrent 与 .txt
+        Set<String> infoHashSet = new HashSet<>();
+        for (File file : FileUtil.loopFiles(torrents)) {
+            String extName = FileUtil.extName(file);
+            if (!"torrent".equals(extName) && !"txt".equals(extName)) {
+                continue;
+            }
+            String infoHash = InfoHashSet.normalize(FileUtil.mainName(file));
+            if (StrUtil.isBlank(infoHash) || !infoHashSet.add(infoHash)) {
+                continue;
+            }
+            // torrents/标题/Season 1/hash.torrent 或 torrents/标题/hash.torrent
+            File dir = file.getParentFile();
+            if (ReUtil.isMatch("Season \\d+", dir.getName())) {
+                dir = dir.getParentFile();
+            }
+            String title = dir.getName();
+            Ani ani = aniMap.get(title);
+            long time = file.lastModified();
+            History history = new History()
+                    .setInfoHash(infoHash)
+                    .setAniId(Objects.isNull(ani) ? "" : ani.getId())
+                    .setTitle(title)
+                    .setReName("")
+                    .setState(Seen.State.DOWNLOADED)
+                    .setCreateTime(time)
+                    .setUpdateTime(time);
+            put(history);
+            lines.add(GSON.toJson(history));
+        }
+        try {
+            Files.write(getHistoryFile().toPath(), lines, StandardCharsets.UTF_8);
+            log.info("导入下载记录 共{}个", lines.size());
+        } catch (Exception e) {
+            log.error("导入下载记录失败 {}", torrents);
+            log.error(e.getMessage(), e);
+        }
+    }
+}
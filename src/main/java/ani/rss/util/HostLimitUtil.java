@@ -0,0 +1,216 @@
+package ani.rss.util;
+
+import ani.rss.entity.Config;
+import ani.rss.entity.HostLimit;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * 按请求类型与域名限制请求的并发数与频率
+ * <p>
+ * 频率使用令牌桶, 只有在超出限制时才会等待
+ */
+@Slf4j
+public class HostLimitUtil {
+
+    /**
+     * rss 及其所在站点 (mikan, nyaa 等)
+     */
+    public static final String RSS = "rss";
+
+    /**
+     * 下载工具接口
+     */
+    public static final String DOWNLOAD = "download";
+
+    /**
+     * bgm 接口
+     */
+    public static final String BGM = "bgm";
+
+    private static final Map<String, Limiter> LIMITER_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 未设置时使用的默认限制
+     */
+    private static final Map<String, HostLimit> DEFAULT_MAP = Map.of(
+            RSS, new HostLimit().setType(RSS).setHost("*").setConcurrency(2).setInterval(500L).setBurst(1),
+            DOWNLOAD, new HostLimit().setType(DOWNLOAD).setHost("*").setConcurrency(4).setInterval(200L).setBurst(5),
+            BGM, new HostLimit().setType(BGM).setHost("*").setConcurrency(2).setInterval(500L).setBurst(2)
+    );
+
+    /**
+     * 获取 url 的域名
+     *
+     * @param url
+     * @return
+     */
+    public static String getHost(String url) {
+        try {
+            return StrUtil.nullToEmpty(URLUtil.url(url).getHost()).toLowerCase();
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    /**
+     * 获取 rss 域名对应的限制
+     *
+     * @param host
+     * @return
+     */
+    public static HostLimit getHostLimit(String host) {
+        return getHostLimit(RSS, host);
+    }
+
+    /**
+     * 获取域名对应的限制, 未设置的域名使用 *
+     *
+     * @param type 请求类型
+     * @param host
+     * @return
+     */
+    public static HostLimit getHostLimit(String type, String host) {
+        Config config = ConfigUtil.CONFIG;
+        List<HostLimit> hostLimits = config.getHostLimits();
+        HostLimit other = DEFAULT_MAP.getOrDefault(type, DEFAULT_MAP.get(RSS));
+        for (HostLimit hostLimit : hostLimits) {
+            // 未设置类型的为 rss
+            if (!StrUtil.blankToDefault(hostLimit.getType(), RSS).equals(type)) {
+                continue;
+            }
+            String h = hostLimit.getHost();
+            if (StrUtil.isBlank(h)) {
+                continue;
+            }
+            if ("*".equals(h)) {
+                other = hostLimit;
+                continue;
+            }
+            if (host.equals(h) || host.endsWith("." + h)) {
+                return hostLimit;
+            }
+        }
+        return other;
+    }
+
+    /**
+     * 在 rss 域名的限制下执行请求
+     *
+     * @param url
+     * @param supplier
+     * @param <T>
+     * @return
+     */
+    public static <T> T execute(String url, Supplier<T> supplier) {
+        return execute(RSS, url, supplier);
+    }
+
+    /**
+     * 在域名的限制下执行请求
+     *
+     * @param type     请求类型
+     * @param url
+     * @param supplier
+     * @param <T>
+     * @return
+     */
+    public static <T> T execute(String type, String url, Supplier<T> supplier) {
+        Limiter limiter = getLimiter(type, url);
+        limiter.semaphore.acquireUninterruptibly();
+        try {
+            limiter.acquire();
+            return supplier.get();
+        } finally {
+            limiter.semaphore.release();
+        }
+    }
+
+    /**
+     * 等待直到可以发出请求, 只限制频率不限制并发
+     *
+     * @param type 请求类型
+     * @param url
+     */
+    public static void acquire(String type, String url) {
+        getLimiter(type, url).acquire();
+    }
+
+    private static Limiter getLimiter(String type, String url) {
+        String host = getHost(url);
+        HostLimit hostLimit = getHostLimit(type, host);
+        int concurrency = Math.max(1, Objects.requireNonNullElse(hostLimit.getConcurrency(), 1));
+        long interval = Math.max(0, Objects.requireNonNullElse(hostLimit.getInterval(), 0L));
+        int burst = Math.max(1, Objects.requireNonNullElse(hostLimit.getBurst(), 1));
+
+        return LIMITER_MAP.compute(type + "@" + host, (k, v) -> {
+            if (Objects.nonNull(v) && v.concurrency == concurrency && v.interval == interval && v.burst == burst) {
+                return v;
+            }
+            // 设置发生改变
+            return new Limiter(k, concurrency, interval, burst);
+        });
+    }
+
+    private static class Limiter {
+        private final String name;
+        private final int concurrency;
+        private final long interval;
+        private final int burst;
+        private final Semaphore semaphore;
+        /**
+         * 剩余令牌, 为负数时表示已被预约
+         */
+        private double tokens;
+        private long time;
+
+        Limiter(String name, int concurrency, long interval, int burst) {
+            this.name = name;
+            this.concurrency = concurrency;
+            this.interval = interval;
+            this.burst = burst;
+            this.semaphore = new Semaphore(concurrency);
+            this.tokens = burst;
+            this.time = System.currentTimeMillis();
+        }
+
+        /**
+         * 取得一个令牌, 令牌不足时等待
+         */
+        void acquire() {
+            long wait = reserve();
+            if (wait > 0) {
+                log.debug("{} 请求过于频繁, 等待 {} ms", name, wait);
+                ThreadUtil.sleep(wait);
+            }
+        }
+
+        /**
+         * 预约一个令牌
+         *
+         * @return 需要等待的毫秒数
+         */
+        synchronized long reserve() {
+            if (interval < 1) {
+                return 0;
+            }
+            long now = System.currentTimeMillis();
+            tokens = Math.min(burst, tokens + (double) (now - time) / interval);
+            time = now;
+            tokens -= 1;
+            if (tokens >= 0) {
+                return 0;
+            }
+            return (long) Math.ceil(-tokens * interval);
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package ani.rss.util;
 
 import ani.rss.entity.Config;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.CharsetUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.Header;
 import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpResponse;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
+import java.util.function.BiFunction;
 
 @Slf4j
 public class HttpReq {
@@ -16,7 +25,38 @@ public class HttpReq {
 
     private static void config(HttpRequest req) {
         req.timeout(6000)
-                .setFollowRedirects(true);
+                .setFollowRedirects(true)
+                // 压缩传输, HttpResponse 读取时会自动解压
+                .header(Header.ACCEPT_ENCODING, "gzip, deflate");
+    }
+
+    /**
+     * 以流的方式读取响应体, 边下载边解压, 不会先将完整的响应体读入内存
+     *
+     * @param req
+     * @param function
+     * @param <T>
+     * @return
+     */
+    public static <T> T thenStream(HttpRequest req, BiFunction<HttpResponse, InputStream, T> function) {
+        try (HttpResponse res = req.executeAsync()) {
+            return function.apply(res, res.bodyStream());
+        }
+    }
+
+    /**
+     * 以流的方式读取文本响应体, 编码以响应头为准, 默认 UTF-8
+     *
+     * @param req
+     * @param function
+     * @param <T>
+     * @return
+     */
+    public static <T> T thenReader(HttpRequest req, BiFunction<HttpResponse, Reader, T> function) {
+        return thenStream(req, (res, inputStream) -> {
+            Charset charset = CharsetUtil.parse(res.charset(), StandardCharsets.UTF_8);
+            return function.apply(res, IoUtil.getReader(inputStream, charset));
+        });
     }
 
     public static HttpRequest post(String url, Boolean proxy) {
@@ -0,0 +1,239 @@
+package ani.rss.util;
+
+import cn.hutool.core.util.StrUtil;
+
+import java.util.Objects;
+
+/**
+ * infoHash 集合, 开放寻址
+ * <p>
+ * 每个 160 位的 infoHash 存为 3 个 long, 不为每个元素创建对象。
+ * 40 位 hex 与 32 位 base32 (磁力链接) 两种格式视为同一个 infoHash, 其他格式的字符串不会被加入
+ */
+public class InfoHashSet {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /**
+     * 第三个 long 中表示该位置已使用
+     */
+    private static final long USED = 1L << 32;
+
+    private static final String BASE32 = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
+
+    /**
+     * 字符 -> hex 值, 非 hex 字符为 -1
+     */
+    private static final byte[] HEX = new byte[128];
+
+    static {
+        for (int i = 0; i < HEX.length; i++) {
+            HEX[i] = (byte) Character.digit(i, 16);
+        }
+    }
+
+    /**
+     * 每个位置 3 个 long: 前 8 字节, 中间 8 字节, 最后 4 字节 | USED
+     */
+    private long[] table;
+    private int mask;
+    private int size;
+
+    public InfoHashSet() {
+        this(16);
+    }
+
+    /**
+     * @param expected 预计的元素数量
+     */
+    public InfoHashSet(int expected) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expected) {
+            capacity <<= 1;
+        }
+        table = new long[capacity * 3];
+        mask = capacity - 1;
+    }
+
+    /**
+     * 添加
+     *
+     * @param infoHash
+     * @return 是否为新添加的, 格式错误时为 false
+     */
+    public synchronized boolean add(String infoHash) {
+        long[] key = parse(infoHash);
+        if (Objects.isNull(key)) {
+            return false;
+        }
+        if (indexOf(key[0], key[1], key[2]) >= 0) {
+            return false;
+        }
+        if (size + 1 > (mask + 1) * LOAD_FACTOR) {
+            resize();
+        }
+        insert(key[0], key[1], key[2]);
+        size++;
+        return true;
+    }
+
+    /**
+     * 是否包含
+     *
+     * @param infoHash
+     * @return 格式错误时为 false
+     */
+    public synchronized boolean contains(String infoHash) {
+        long[] key = parse(infoHash);
+        if (Objects.isNull(key)) {
+            return false;
+        }
+        return indexOf(key[0], key[1], key[2]) >= 0;
+    }
+
+    /**
+     * 移除
+     *
+     * @param infoHash
+     * @return 是否存在
+     */
+    public synchronized boolean remove(String infoHash) {
+        long[] key = parse(infoHash);
+        if (Objects.isNull(key)) {
+            return false;
+        }
+        int i = indexOf(key[0], key[1], key[2]);
+        if (i < 0) {
+            return false;
+        }
+        // 将后面的元素前移, 不留删除标记
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (table[j * 3 + 2] == 0) {
+                break;
+            }
+            int home = slot(table[j * 3]);
+            boolean move = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+            if (move) {
+                System.arraycopy(table, j * 3, table, i * 3, 3);
+                i = j;
+            }
+        }
+        table[i * 3] = 0;
+        table[i * 3 + 1] = 0;
+        table[i * 3 + 2] = 0;
+        size--;
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 是否为 hex 或 base32 格式的 infoHash
+     *
+     * @param infoHash
+     * @return
+     */
+    public static boolean isInfoHash(String infoHash) {
+        return Objects.nonNull(parse(infoHash));
+    }
+
+    /**
+     * 转换为小写 hex
+     *
+     * @param infoHash
+     * @return 格式错误时原样返回小写
+     */
+    public static String normalize(String infoHash) {
+        long[] key = parse(infoHash);
+        if (Objects.isNull(key)) {
+            return StrUtil.nullToEmpty(infoHash).trim().toLowerCase();
+        }
+        return String.format("%016x%016x%08x", key[0], key[1], key[2] & 0xffffffffL);
+    }
+
+    private int slot(long h0) {
+        // infoHash 本身是均匀分布的
+        return (int) (h0 ^ (h0 >>> 32)) & mask;
+    }
+
+    private int indexOf(long h0, long h1, long h2) {
+        int i = slot(h0);
+        while (true) {
+            long used = table[i * 3 + 2];
+            if (used == 0) {
+                return -1;
+            }
+            if (used == h2 && table[i * 3] == h0 && table[i * 3 + 1] == h1) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void insert(long h0, long h1, long h2) {
+        int i = slot(h0);
+        while (table[i * 3 + 2] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i * 3] = h0;
+        table[i * 3 + 1] = h1;
+        table[i * 3 + 2] = h2;
+    }
+
+    private void resize() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        mask = (mask << 1) | 1;
+        for (int i = 0; i < old.length; i += 3) {
+            if (old[i + 2] != 0) {
+                insert(old[i], old[i + 1], old[i + 2]);
+            }
+        }
+    }
+
+    /**
+     * 解析 hex 或 base32
+     *
+     * @param infoHash
+     * @return 3 个 long, 格式错误时为 null
+     */
+    private static long[] parse(String infoHash) {
+        if (Objects.isNull(infoHash)) {
+            return null;
+        }
+        infoHash = infoHash.trim();
+        long[] key = new long[3];
+        int length = infoHash.length();
+        if (length == 40) {
+            for (int i = 0; i < 40; i++) {
+                char c = infoHash.charAt(i);
+                int d = c < HEX.length ? HEX[c] : -1;
+                if (d < 0) {
+                    return null;
+                }
+                // 每个 long 16 个字符, 最后一个 8 个字符
+                key[i / 16] = (key[i / 16] << 4) | d;
+            }
+        } else if (length == 32) {
+            // 160 位, 依次移入
+            for (int i = 0; i < 32; i++) {
+                int d = BASE32.indexOf(Character.toUpperCase(infoHash.charAt(i)));
+                if (d < 0) {
+                    return null;
+                }
+                for (int b = 4; b >= 0; b--) {
+                    int bit = i * 5 + (4 - b);
+                    key[bit / 64] = (key[bit / 64] << 1) | ((d >>> b) & 1);
+                }
+            }
+        } else {
+            return null;
+        }
+        key[2] = (key[2] & 0xffffffffL) | USED;
+        return key;
+    }
+}
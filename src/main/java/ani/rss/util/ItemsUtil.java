@@ -23,7 +23,7 @@ public class ItemsUtil {
      * @param ani
      * @param items
      */
-    public static synchronized void omit(Ani ani, List<Item> items) {
+    public static void omit(Ani ani, List<Item> items) {
         Config config = ConfigUtil.CONFIG;
         Boolean omit = config.getOmit();
         if (!omit) {
@@ -56,12 +56,14 @@ public class ItemsUtil {
                 continue;
             }
             String s = StrFormatter.format("缺少集数 {} S{}E{}", title, String.format("%02d", season), String.format("%02d", i));
-            if (messageCache.containsKey(s)) {
-                continue;
+            synchronized (messageCache) {
+                if (messageCache.containsKey(s)) {
+                    continue;
+                }
+                // 缓存一天 不重复发送
+                messageCache.put(s, "1", TimeUnit.DAYS.toDays(1));
             }
             log.info(s);
-            // 缓存一天 不重复发送
-            messageCache.put(s, "1", TimeUnit.DAYS.toDays(1));
             MessageUtil.send(config, ani, s);
         }
     }
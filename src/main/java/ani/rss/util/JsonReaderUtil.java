@@ -0,0 +1,108 @@
+package ani.rss.util;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 流式读取 json 的辅助方法
+ * <p>
+ * 下载工具的任务列表中标签、状态、保存位置大量重复, 读取时复用同一个字符串
+ */
+public class JsonReaderUtil {
+
+    /**
+     * 复用字符串的数量上限, 超过后清空
+     */
+    private static final int MAX_SIZE = 4096;
+
+    private static final Map<String, String> STRING_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 读取字符串, 数字与布尔值按字符串返回, null 返回 null
+     *
+     * @param reader
+     * @return
+     * @throws IOException
+     */
+    public static String nextString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * 读取字符串并复用相同的字符串
+     *
+     * @param reader
+     * @return
+     * @throws IOException
+     */
+    public static String nextIntern(JsonReader reader) throws IOException {
+        return intern(nextString(reader));
+    }
+
+    /**
+     * 读取布尔值, null 返回 false
+     *
+     * @param reader
+     * @return
+     * @throws IOException
+     */
+    public static boolean nextBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return false;
+        }
+        return reader.nextBoolean();
+    }
+
+    /**
+     * 读取字符串数组, null 返回空列表
+     * <p>
+     * 不复用字符串, 如 qBittorrent 删除的任务 hash 只使用一次, 复用会挤掉标签与保存位置
+     *
+     * @param reader
+     * @return
+     * @throws IOException
+     */
+    public static List<String> nextStringList(JsonReader reader) throws IOException {
+        List<String> list = new ArrayList<>();
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return list;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            list.add(nextString(reader));
+        }
+        reader.endArray();
+        return list;
+    }
+
+    public static String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        String old = STRING_MAP.get(s);
+        if (old != null) {
+            return old;
+        }
+        if (STRING_MAP.size() >= MAX_SIZE) {
+            STRING_MAP.clear();
+        }
+        old = STRING_MAP.putIfAbsent(s, s);
+        return old == null ? s : old;
+    }
+}
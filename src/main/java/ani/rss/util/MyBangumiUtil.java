@@ -0,0 +1,312 @@
+package ani.rss.util;
+
+import ani.rss.entity.Ani;
+import ani.rss.entity.Config;
+import ani.rss.entity.HostLimit;
+import ani.rss.entity.Item;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HttpUtil;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Mikan 聚合 rss (MyBangumi)
+ * <p>
+ * 每轮只获取一次聚合 rss, 按 bangumiId 与字幕组分配给各个订阅。
+ * 聚合 rss 中没有 bangumiId 与字幕组, 需要从条目的 Episode 页面获取, 结果会缓存
+ */
+@Slf4j
+public class MyBangumiUtil {
+
+    private static final Gson GSON = new GsonBuilder()
+            .disableHtmlEscaping()
+            .create();
+
+    /**
+     * infoHash -> bangumiId/subgroupId
+     */
+    private static final Map<String, String> EPISODE_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 连续只使用聚合 rss 的轮数达到此值后, 使用订阅自己的 rss 完整处理一次
+     */
+    private static final int FULL_INTERVAL = 12;
+
+    /**
+     * 订阅id -> 连续只使用聚合 rss 的轮数
+     */
+    private static final Map<String, Integer> PARTIAL_COUNT = new ConcurrentHashMap<>();
+
+    public static File getMyBangumiFile() {
+        File configDir = ConfigUtil.getConfigDir();
+        return new File(configDir + File.separator + "mybangumi.json");
+    }
+
+    /**
+     * 加载缓存
+     */
+    public static void load() {
+        File file = getMyBangumiFile();
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            JsonObject jsonObject = GSON.fromJson(FileUtil.readUtf8String(file), JsonObject.class);
+            Map<String, String> episodes = GSON.fromJson(jsonObject.get("episodes"), new TypeToken<Map<String, String>>() {
+            }.getType());
+            EPISODE_MAP.putAll(ObjectUtil.defaultIfNull(episodes, Map.of()));
+            log.debug("加载Mikan聚合rss缓存 共{}项", EPISODE_MAP.size());
+        } catch (Exception e) {
+            log.error("加载Mikan聚合rss缓存失败 {}", file);
+            log.debug(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 保存缓存
+     */
+    public static synchronized void sync() {
+        File file = getMyBangumiFile();
+        try {
+            FileUtil.writeUtf8String(GSON.toJson(Map.of(
+                    "episodes", EPISODE_MAP
+            )), file);
+        } catch (Exception e) {
+            log.error("保存Mikan聚合rss缓存失败 {}", file);
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 是否使用聚合 rss
+     *
+     * @return
+     */
+    public static Boolean enable() {
+        Config config = ConfigUtil.CONFIG;
+        return config.getMikanMyBangumi() && StrUtil.isNotBlank(config.getMikanMyBangumiUrl());
+    }
+
+    /**
+     * 获取聚合 rss, 按 bangumiId/subgroupId 分组
+     *
+     * @return 未开启或获取失败时返回空
+     */
+    public static Map<String, List<Item>> get() {
+        if (!enable()) {
+            return Map.of();
+        }
+        Config config = ConfigUtil.CONFIG;
+        String url = config.getMikanMyBangumiUrl();
+        try {
+            String s = RssUtil.get(url);
+            List<Item> items = RssUtil.parse(s, it -> true).getItems();
+            int size = EPISODE_MAP.size();
+
+            List<String> keys = getKeys(items);
+            Map<String, List<Item>> map = new HashMap<>();
+            for (int i = 0; i < items.size(); i++) {
+                String key = keys.get(i);
+                if (StrUtil.isBlank(key)) {
+                    continue;
+                }
+                map.computeIfAbsent(key, k -> new ArrayList<>()).add(items.get(i));
+            }
+
+            // 只保留聚合 rss 中仍存在的条目
+            Set<String> infoHashSet = items.stream()
+                    .map(Item::getInfoHash)
+                    .collect(Collectors.toSet());
+            boolean changed = EPISODE_MAP.keySet().retainAll(infoHashSet);
+            changed |= EPISODE_MAP.size() != size;
+            if (changed) {
+                sync();
+            }
+            log.info("Mikan聚合rss 共 {} 个条目 {} 个分组", items.size(), map.size());
+            return map;
+        } catch (Exception e) {
+            String message = ExceptionUtil.getMessage(e);
+            log.error("获取Mikan聚合rss失败 {}", message);
+            log.debug(message, e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * 订阅是否可以使用聚合 rss
+     * <p>
+     * 只有本轮聚合 rss 中存在属于此订阅的条目时才使用, 否则使用订阅自己的 rss。
+     * 使用备用rss的订阅需要完整获取
+     *
+     * @param ani
+     * @param myBangumi
+     * @return
+     */
+    public static Boolean covered(Ani ani, Map<String, List<Item>> myBangumi) {
+        if (myBangumi.isEmpty()) {
+            return false;
+        }
+        if (AniUtil.getUrls(ani).size() > 1) {
+            return false;
+        }
+        return !getEntries(ani, myBangumi).isEmpty();
+    }
+
+    /**
+     * 本轮是否只使用聚合 rss 中的条目, 需要先通过 {@link #covered(Ani, Map)} 判断
+     * <p>
+     * 聚合 rss 只有部分剧集, 不会检测遗漏、更新集数与自动停止订阅。
+     * 连续使用 {@link #FULL_INTERVAL} 轮后, 或聚合 rss 中的条目已达到总集数时, 使用订阅自己的 rss 完整处理一次
+     *
+     * @param ani
+     * @param myBangumi
+     * @return
+     */
+    public static Boolean partial(Ani ani, Map<String, List<Item>> myBangumi) {
+        String id = Objects.toString(ani.getId(), "");
+        int totalEpisodeNumber = ObjectUtil.defaultIfNull(ani.getTotalEpisodeNumber(), 0);
+        if (totalEpisodeNumber > 0 && getEntries(ani, myBangumi).size() >= totalEpisodeNumber) {
+            PARTIAL_COUNT.remove(id);
+            return false;
+        }
+        if (PARTIAL_COUNT.merge(id, 1, Integer::sum) > FULL_INTERVAL) {
+            PARTIAL_COUNT.remove(id);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 获取聚合 rss 中属于此订阅的条目, 需要先通过 {@link #covered(Ani, Map)} 判断
+     *
+     * @param ani
+     * @param myBangumi
+     * @return
+     */
+    public static List<Item> getItems(Ani ani, Map<String, List<Item>> myBangumi) {
+        Predicate<String> filter = AniUtil.getFilter(ani);
+        List<Item> items = getEntries(ani, myBangumi)
+                .stream()
+                .filter(item -> filter.test(item.getTitle()))
+                // 各订阅会修改条目
+                .map(ObjectUtil::clone)
+                .collect(Collectors.toList());
+        return AniUtil.getItems(ani, items)
+                .stream()
+                .peek(item -> item.setMaster(true)
+                        .setSubgroup(ani.getSubgroup()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 按 bangumiId/subgroupId 查找属于此订阅的条目, 订阅未指定字幕组时包含此番剧的所有字幕组
+     *
+     * @param ani
+     * @param myBangumi
+     * @return
+     */
+    private static List<Item> getEntries(Ani ani, Map<String, List<Item>> myBangumi) {
+        String bangumiId = getParam(ani.getUrl(), "bangumiId");
+        if (StrUtil.isBlank(bangumiId)) {
+            return List.of();
+        }
+        String subgroupId = getParam(ani.getUrl(), "subgroupid");
+        if (StrUtil.isNotBlank(subgroupId)) {
+            return myBangumi.getOrDefault(bangumiId + "/" + subgroupId, List.of());
+        }
+        return myBangumi.entrySet()
+                .stream()
+                .filter(entry -> entry.getKey().startsWith(bangumiId + "/"))
+                .flatMap(entry -> entry.getValue().stream())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 获取所有条目的 bangumiId/subgroupId, 未缓存的条目按 Mikan 域名的并发限制同时获取
+     *
+     * @param items
+     * @return 与条目顺序一致
+     */
+    private static List<String> getKeys(List<Item> items) {
+        long uncached = items.stream()
+                .map(Item::getInfoHash)
+                .filter(StrUtil::isNotBlank)
+                .filter(infoHash -> !EPISODE_MAP.containsKey(infoHash))
+                .count();
+        if (uncached < 2) {
+            return items.stream()
+                    .map(MyBangumiUtil::getKey)
+                    .collect(Collectors.toList());
+        }
+        HostLimit hostLimit = HostLimitUtil.getHostLimit(HostLimitUtil.getHost(MikanUtil.getMikanHost()));
+        int concurrency = Math.max(1, Objects.requireNonNullElse(hostLimit.getConcurrency(), 1));
+        ExecutorService executor = ThreadUtil.newFixedExecutor((int) Math.min(concurrency, uncached), "mybangumi-", true);
+        try {
+            List<CompletableFuture<String>> futures = items.stream()
+                    .map(item -> EPISODE_MAP.containsKey(StrUtil.nullToEmpty(item.getInfoHash())) ?
+                            CompletableFuture.completedFuture(getKey(item)) :
+                            CompletableFuture.supplyAsync(() -> getKey(item), executor))
+                    .collect(Collectors.toList());
+            return futures.stream()
+                    .map(CompletableFuture::join)
+                    .collect(Collectors.toList());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 通过 Episode 页面获取条目的 bangumiId/subgroupId
+     *
+     * @param item
+     * @return
+     */
+    private static String getKey(Item item) {
+        String infoHash = item.getInfoHash();
+        if (StrUtil.isBlank(infoHash)) {
+            return "";
+        }
+        String key = EPISODE_MAP.get(infoHash);
+        if (Objects.nonNull(key)) {
+            return key;
+        }
+        String url = MikanUtil.getMikanHost() + "/Home/Episode/" + infoHash;
+        String body = HostLimitUtil.execute(url, () -> HttpReq.get(url, true)
+                .thenFunction(res -> res.isOk() ? res.body() : ""));
+        String bangumiId = ReUtil.get("/Home/Bangumi/(\\d+)", body, 1);
+        if (StrUtil.isBlank(bangumiId)) {
+            log.debug("未能获取 bangumiId {}", url);
+            return "";
+        }
+        String subgroupId = StrUtil.nullToEmpty(ReUtil.get("/Home/PublishGroup/(\\d+)", body, 1));
+        key = bangumiId + "/" + subgroupId;
+        EPISODE_MAP.put(infoHash, key);
+        return key;
+    }
+
+    private static String getParam(String url, String name) {
+        Map<String, String> decodeParamMap = HttpUtil.decodeParamMap(url, StandardCharsets.UTF_8);
+        for (Map.Entry<String, String> entry : decodeParamMap.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,642 @@
+package ani.rss.util;
+
+import ani.rss.entity.Ani;
+import ani.rss.entity.Config;
+import ani.rss.entity.Item;
+import ani.rss.entity.Rss;
+import ani.rss.entity.RssCache;
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.core.exceptions.UtilException;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.http.Header;
+import cn.hutool.http.HttpException;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpStatus;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.StringReader;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * RSS 获取与解析
+ */
+@Slf4j
+public class RssUtil {
+
+    private static final Gson GSON = new GsonBuilder()
+            .disableHtmlEscaping()
+            .create();
+
+    /**
+     * 已处理完成的 rss 的校验信息 订阅id -> url -> 校验信息
+     */
+    private static final Map<String, Map<String, RssCache>> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 本次获取到的校验信息, 订阅处理完成后才会提交, 以免未下载的条目被跳过
+     */
+    private static final Map<String, Map<String, Fetched>> PENDING = new ConcurrentHashMap<>();
+
+    /**
+     * 条件请求 未发生变化
+     */
+    public static final AtomicLong HIT = new AtomicLong(0);
+
+    /**
+     * 条件请求 发生变化
+     */
+    public static final AtomicLong MISS = new AtomicLong(0);
+
+    /**
+     * 请求失败 (非 2xx 响应)
+     */
+    public static final AtomicLong ERROR = new AtomicLong(0);
+
+    /**
+     * 服务端未支持条件请求, 但内容未发生变化
+     */
+    public static final AtomicLong UNCHANGED = new AtomicLong(0);
+
+    /**
+     * 因 rss 未发生变化而跳过的订阅
+     */
+    public static final AtomicLong SKIP = new AtomicLong(0);
+
+    /**
+     * 与其他请求共用结果
+     */
+    public static final AtomicLong SHARED = new AtomicLong(0);
+
+    /**
+     * 正在进行的请求
+     */
+    private static final Map<String, CompletableFuture<Response>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    /**
+     * 最近获取到的 rss, 按 rssCacheTime 过期, 只用于短时间内的重复请求
+     */
+    private static final Cache<String, Response> RECENT = CacheUtil.newLRUCache(256);
+
+    /**
+     * 已提交的 rss 内容 url -> 内容, 只保留与校验信息对应的一份, 条件请求未发生变化时从这里取回内容
+     */
+    private static final Map<String, Response> COMMITTED = new ConcurrentHashMap<>();
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        // 防止 XXE
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    public static File getCacheFile() {
+        File configDir = ConfigUtil.getConfigDir();
+        return new File(configDir + File.separator + "rss.json");
+    }
+
+    /**
+     * 加载校验信息
+     */
+    public static void load() {
+        File cacheFile = getCacheFile();
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try {
+            String s = FileUtil.readUtf8String(cacheFile);
+            Map<String, Map<String, RssCache>> map = GSON.fromJson(s, new TypeToken<Map<String, Map<String, RssCache>>>() {
+            }.getType());
+            if (Objects.nonNull(map)) {
+                for (Map.Entry<String, Map<String, RssCache>> entry : map.entrySet()) {
+                    CACHE.put(entry.getKey(), new ConcurrentHashMap<>(entry.getValue()));
+                }
+            }
+            log.debug("加载rss校验信息 共{}项", CACHE.size());
+        } catch (Exception e) {
+            log.error("加载rss校验信息失败 {}", cacheFile);
+            log.debug(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 保存校验信息
+     */
+    public static synchronized void sync() {
+        // 过期的内容不等到缓存满时才清理
+        RECENT.prune();
+        // 不再有订阅使用的 rss 不需要保留内容
+        Set<String> urls = new HashSet<>();
+        CACHE.values().forEach(map -> urls.addAll(map.keySet()));
+        COMMITTED.keySet().retainAll(urls);
+
+        File cacheFile = getCacheFile();
+        try {
+            FileUtil.writeUtf8String(GSON.toJson(CACHE), cacheFile);
+            log.debug("保存rss校验信息 {}", cacheFile);
+        } catch (Exception e) {
+            log.error("保存rss校验信息失败 {}", cacheFile);
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 获取 rss, 同一地址的并发请求共用一次请求, 并在短时间内复用结果
+     *
+     * @param url
+     * @return
+     */
+    public static String get(String url) {
+        Config config = ConfigUtil.CONFIG;
+        long cacheTime = TimeUnit.SECONDS.toMillis(config.getRssCacheTime());
+        Response recent = RECENT.get(url, false);
+        if (Objects.nonNull(recent) && System.currentTimeMillis() - recent.time <= cacheTime) {
+            SHARED.incrementAndGet();
+            log.debug("使用刚获取的rss {}", url);
+            return recent.body;
+        }
+        return singleFlight(url, url, () -> HttpReq.get(url, true)).body;
+    }
+
+    /**
+     * 使用条件请求获取 rss, 只与校验信息相同的请求共用, 不使用缓存的结果
+     *
+     * @param ani
+     * @param url
+     * @return 未发生变化时返回 null
+     * @throws HttpException 请求失败时抛出, 不会把错误页面当作 rss 返回
+     */
+    public static String getIfModified(Ani ani, String url) {
+        String id = ani.getId();
+        String stamp = getStamp(ani);
+        RssCache rssCache = CACHE.getOrDefault(id, Map.of()).get(url);
+        if (Objects.nonNull(rssCache) && !stamp.equals(rssCache.getStamp())) {
+            // 规则已改变, 需要重新处理
+            rssCache = null;
+        }
+
+        String etag = "";
+        String lastModified = "";
+        if (Objects.nonNull(rssCache)) {
+            etag = StrUtil.nullToEmpty(rssCache.getEtag());
+            lastModified = StrUtil.nullToEmpty(rssCache.getLastModified());
+        }
+        String finalEtag = etag;
+        String finalLastModified = lastModified;
+        Response res = singleFlight(url, url + "\n" + etag + "\n" + lastModified, () -> {
+            HttpRequest httpRequest = HttpReq.get(url, true);
+            if (StrUtil.isNotBlank(finalEtag)) {
+                httpRequest.header("If-None-Match", finalEtag);
+            }
+            if (StrUtil.isNotBlank(finalLastModified)) {
+                httpRequest.header("If-Modified-Since", finalLastModified);
+            }
+            return httpRequest;
+        });
+
+        if (res.status == HttpStatus.HTTP_NOT_MODIFIED) {
+            HIT.incrementAndGet();
+            log.debug("rss未发生变化 {}", url);
+            return null;
+        }
+        if (!res.ok) {
+            ERROR.incrementAndGet();
+            throw new HttpException("获取rss失败 {} {}", res.status, url);
+        }
+        if (Objects.nonNull(rssCache) && res.hash.equals(rssCache.getHash())) {
+            UNCHANGED.incrementAndGet();
+            // 与校验信息一致, 可以作为已提交的内容
+            COMMITTED.put(url, res);
+            log.debug("rss内容未发生变化 {}", url);
+            return null;
+        }
+        MISS.incrementAndGet();
+        RssCache newRssCache = new RssCache()
+                .setEtag(res.etag)
+                .setLastModified(res.lastModified)
+                .setHash(res.hash)
+                .setStamp(stamp);
+        PENDING.computeIfAbsent(id, k -> new ConcurrentHashMap<>())
+                .put(url, new Fetched(newRssCache, res));
+        return res.body;
+    }
+
+    /**
+     * 获取与已处理的校验信息对应的 rss 内容, 用于 {@link #getIfModified(Ani, String)} 返回 null 后仍需要完整内容时
+     *
+     * @param ani
+     * @param url
+     * @return 没有保留对应的内容时返回 null
+     */
+    public static String getUnmodified(Ani ani, String url) {
+        RssCache rssCache = CACHE.getOrDefault(ani.getId(), Map.of()).get(url);
+        Response committed = COMMITTED.get(url);
+        if (Objects.isNull(rssCache) || Objects.isNull(committed) || !committed.hash.equals(rssCache.getHash())) {
+            return null;
+        }
+        log.debug("复用未发生变化的rss {}", url);
+        return committed.body;
+    }
+
+    /**
+     * 相同 key 的请求正在进行时等待其结果, 否则发起请求
+     *
+     * @param url
+     * @param key
+     * @param request
+     * @return
+     */
+    private static Response singleFlight(String url, String key, Supplier<HttpRequest> request) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        CompletableFuture<Response> inFlight = IN_FLIGHT.putIfAbsent(key, future);
+        if (Objects.nonNull(inFlight)) {
+            SHARED.incrementAndGet();
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw e;
+            }
+        }
+        try {
+            Response response = HostLimitUtil.execute(url, () -> request.get().thenFunction(res -> {
+                Response r = new Response();
+                r.status = res.getStatus();
+                r.ok = res.isOk();
+                r.body = res.body();
+                r.etag = res.header(Header.ETAG);
+                r.lastModified = res.header("Last-Modified");
+                r.hash = SecureUtil.sha256(StrUtil.nullToEmpty(r.body));
+                r.time = System.currentTimeMillis();
+                return r;
+            }));
+            long cacheTime = TimeUnit.SECONDS.toMillis(ConfigUtil.CONFIG.getRssCacheTime());
+            if (response.ok && cacheTime > 0) {
+                RECENT.put(url, response, cacheTime);
+            }
+            future.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(key, future);
+        }
+    }
+
+    /**
+     * 订阅中影响下载结果的规则的摘要
+     *
+     * @param ani
+     * @return
+     */
+    public static String getStamp(Ani ani) {
+        Config config = ConfigUtil.CONFIG;
+        List<Object> rules = Arrays.asList(
+                ani.getTitle(), ani.getSeason(), ani.getOffset(), ani.getSubgroup(),
+                ani.getMatch(), ani.getExclude(), ani.getGlobalExclude(), ani.getOva(),
+                ani.getCustomDownloadPath(), ani.getDownloadPath(), ani.getOmit(),
+                ani.getCustomEpisode(), ani.getCustomEpisodeStr(), ani.getCustomEpisodeGroupIndex(),
+                ani.getBackRssList(), config.getExclude()
+        );
+        return SecureUtil.md5(GSON.toJson(rules));
+    }
+
+    /**
+     * 订阅已处理完成, 提交本次的校验信息
+     *
+     * @param ani
+     */
+    public static void commit(Ani ani) {
+        String id = ani.getId();
+        Map<String, Fetched> pending = PENDING.remove(id);
+        if (Objects.isNull(pending)) {
+            return;
+        }
+        Map<String, RssCache> map = CACHE.computeIfAbsent(id, k -> new ConcurrentHashMap<>());
+        // 只保留当前仍在使用的 rss
+        map.keySet().retainAll(AniUtil.getUrls(ani));
+        pending.forEach((url, fetched) -> {
+            map.put(url, fetched.rssCache);
+            COMMITTED.put(url, fetched.response);
+        });
+    }
+
+    /**
+     * 订阅未处理完成 (例如达到同时下载数量限制), 下次需要完整处理
+     *
+     * @param ani
+     */
+    public static void rollback(Ani ani) {
+        PENDING.remove(ani.getId());
+    }
+
+    /**
+     * 订阅发生修改或删除
+     *
+     * @param ani
+     */
+    public static void remove(Ani ani) {
+        PENDING.remove(ani.getId());
+        CACHE.remove(ani.getId());
+    }
+
+    /**
+     * 全局设置发生修改
+     */
+    public static void clear() {
+        PENDING.clear();
+        CACHE.clear();
+    }
+
+    /**
+     * 解析 rss
+     *
+     * @param xml    rss 内容
+     * @param filter 标题过滤, 返回 false 的条目读到标题后直接跳过
+     * @return 条目顺序与 rss 中相反, 与旧版从后向前遍历一致
+     */
+    public static Rss parse(String xml, Predicate<String> filter) {
+        String title = "";
+        List<Item> items = new ArrayList<>();
+
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(xml));
+            int depth = 0;
+            int channelDepth = -1;
+            boolean hasTitle = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == channelDepth) {
+                        channelDepth = -1;
+                    }
+                    depth--;
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                depth++;
+                String name = getName(reader);
+                if (channelDepth < 0) {
+                    if (name.equals("channel")) {
+                        channelDepth = depth;
+                    }
+                    continue;
+                }
+                if (depth != channelDepth + 1) {
+                    continue;
+                }
+                if (name.equals("title")) {
+                    String text = getText(reader);
+                    depth--;
+                    if (!hasTitle) {
+                        title = text;
+                        hasTitle = true;
+                    }
+                    continue;
+                }
+                if (name.equals("item")) {
+                    Item item = getItem(reader, filter);
+                    depth--;
+                    if (item != null) {
+                        items.add(item);
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new UtilException(e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    log.debug(e.getMessage(), e);
+                }
+            }
+        }
+        Collections.reverse(items);
+        return new Rss()
+                .setTitle(title)
+                .setItems(items);
+    }
+
+    /**
+     * 读取单个 item, 读取完成后 reader 停在 item 的结束标签
+     *
+     * @param reader
+     * @param filter
+     * @return 被过滤或无种子时返回 null
+     */
+    private static Item getItem(XMLStreamReader reader, Predicate<String> filter) throws XMLStreamException {
+        String itemTitle = "";
+        String torrent = "";
+        String length = "";
+        String infoHash = "";
+        String size = "0MB";
+        boolean tested = false;
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            if (depth > 1) {
+                depth++;
+                continue;
+            }
+            String name = getName(reader);
+            switch (name) {
+                case "title": {
+                    itemTitle = getText(reader);
+                    tested = true;
+                    if (!filter.test(itemTitle)) {
+                        skip(reader, depth);
+                        return null;
+                    }
+                    break;
+                }
+                case "enclosure": {
+                    String url = StrUtil.nullToEmpty(reader.getAttributeValue(null, "url"));
+                    length = StrUtil.nullToEmpty(reader.getAttributeValue(null, "length"));
+                    if (NumberUtil.isLong(length) && Long.parseLong(length) > 1) {
+                        torrent = url;
+                        infoHash = FileUtil.mainName(torrent);
+                    }
+
+                    String magnetReg = "^magnet\\:\\?xt=urn:btih\\:(\\w+)";
+                    if (ReUtil.contains(magnetReg, url)) {
+                        torrent = url;
+                        infoHash = ReUtil.get(magnetReg, url, 1);
+                    }
+                    getText(reader);
+                    break;
+                }
+                case "nyaa:infoHash": {
+                    infoHash = getText(reader);
+                    break;
+                }
+                case "nyaa:size": {
+                    size = getText(reader);
+                    size = ReUtil.get("[\\d\\.]+", size, 0) + "MB";
+                    break;
+                }
+                case "link": {
+                    String link = getText(reader);
+                    if (link.endsWith(".torrent")) {
+                        torrent = link;
+                    }
+                    break;
+                }
+                default: {
+                    depth++;
+                }
+            }
+        }
+
+        if (!tested && !filter.test(itemTitle)) {
+            return null;
+        }
+
+        if (StrUtil.isBlank(torrent)) {
+            return null;
+        }
+
+        try {
+            if (StrUtil.isNotBlank(length) && size.equals("0MB")) {
+                Double l = Long.parseLong(length) / 1024.0 / 1024;
+                size = NumberUtil.decimalFormat("0.00", l) + "MB";
+            }
+        } catch (Exception e) {
+            log.warn(e.getMessage());
+        }
+
+        if (StrUtil.isNotBlank(infoHash)) {
+            infoHash = infoHash.toLowerCase();
+        }
+
+        return new Item()
+                .setEpisode(1.0)
+                .setTitle(itemTitle)
+                .setReName(itemTitle)
+                .setTorrent(torrent)
+                .setInfoHash(infoHash)
+                .setSize(size);
+    }
+
+    /**
+     * 带前缀的标签名, 例如 nyaa:infoHash
+     *
+     * @param reader
+     * @return
+     */
+    private static String getName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        String localName = reader.getLocalName();
+        if (StrUtil.isEmpty(prefix)) {
+            return localName;
+        }
+        return prefix + ":" + localName;
+    }
+
+    /**
+     * 读取当前标签下所有文本, 与 Node.getTextContent 一致, 读取完成后 reader 停在结束标签
+     *
+     * @param reader
+     * @return
+     */
+    private static String getText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT: {
+                    depth++;
+                    break;
+                }
+                case XMLStreamConstants.END_ELEMENT: {
+                    depth--;
+                    break;
+                }
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE: {
+                    sb.append(reader.getText());
+                    break;
+                }
+                default:
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 跳过剩余内容直到当前层级结束
+     *
+     * @param reader
+     * @param depth
+     */
+    private static void skip(XMLStreamReader reader, int depth) throws XMLStreamException {
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * 本次获取到但尚未提交的 rss
+     */
+    @AllArgsConstructor
+    private static class Fetched {
+        private final RssCache rssCache;
+        private final Response response;
+    }
+
+    private static class Response {
+        private int status;
+        private boolean ok;
+        private String body;
+        private String etag;
+        private String lastModified;
+        private String hash;
+        private long time;
+    }
+}
@@ -0,0 +1,121 @@
+package ani.rss.util;
+
+import ani.rss.entity.Ani;
+import ani.rss.entity.Item;
+import ani.rss.entity.Seen;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 记录订阅中已处理过的条目, 只有新的条目才需要检查是否已下载
+ */
+@Slf4j
+public class SeenUtil {
+
+    private static final Gson GSON = new GsonBuilder()
+            .disableHtmlEscaping()
+            .create();
+
+    /**
+     * 订阅id -> 已处理的条目
+     */
+    private static final Map<String, Seen> SEEN_MAP = new ConcurrentHashMap<>();
+
+    public static File getSeenFile() {
+        File configDir = ConfigUtil.getConfigDir();
+        return new File(configDir + File.separator + "seen.json");
+    }
+
+    /**
+     * 加载已处理的条目
+     */
+    public static void load() {
+        File seenFile = getSeenFile();
+        if (!seenFile.exists()) {
+            return;
+        }
+        try {
+            String s = FileUtil.readUtf8String(seenFile);
+            Map<String, Seen> map = GSON.fromJson(s, new TypeToken<Map<String, Seen>>() {
+            }.getType());
+            if (Objects.nonNull(map)) {
+                for (Map.Entry<String, Seen> entry : map.entrySet()) {
+                    Seen seen = entry.getValue();
+                    seen.setItems(new ConcurrentHashMap<>(seen.getItems()));
+                    SEEN_MAP.put(entry.getKey(), seen);
+                }
+            }
+            log.debug("加载已处理的条目 共{}个订阅", SEEN_MAP.size());
+        } catch (Exception e) {
+            log.error("加载已处理的条目失败 {}", seenFile);
+            log.debug(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 保存已处理的条目
+     */
+    public static synchronized void sync() {
+        File seenFile = getSeenFile();
+        try {
+            FileUtil.writeUtf8String(GSON.toJson(SEEN_MAP), seenFile);
+            log.debug("保存已处理的条目 {}", seenFile);
+        } catch (Exception e) {
+            log.error("保存已处理的条目失败 {}", seenFile);
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 获取订阅已处理的条目, 订阅规则改变后重新开始记录
+     *
+     * @param ani
+     * @return
+     */
+    public static Seen get(Ani ani) {
+        String stamp = RssUtil.getStamp(ani);
+        return SEEN_MAP.compute(ani.getId(), (k, seen) -> {
+            if (Objects.nonNull(seen) && stamp.equals(seen.getStamp())) {
+                return seen;
+            }
+            if (Objects.nonNull(seen)) {
+                log.info("{} 订阅规则发生改变, 重新检查所有条目", ani.getTitle());
+            }
+            return new Seen()
+                    .setStamp(stamp)
+                    .setItems(new ConcurrentHashMap<>());
+        });
+    }
+
+    /**
+     * 条目的标识
+     *
+     * @param item
+     * @return
+     */
+    public static String getKey(Item item) {
+        String infoHash = item.getInfoHash();
+        if (StrUtil.isNotBlank(infoHash)) {
+            return infoHash;
+        }
+        return item.getTorrent();
+    }
+
+    /**
+     * 清空订阅已处理的条目
+     *
+     * @param ani
+     */
+    public static void remove(Ani ani) {
+        SEEN_MAP.remove(ani.getId());
+    }
+}
@@ -0,0 +1,182 @@
+package ani.rss.util;
+
+import ani.rss.entity.Ani;
+import ani.rss.entity.Item;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 并发下载种子文件
+ * <p>
+ * 先写入临时文件再重命名, 校验通过后才算保存成功, 失败时退避重试
+ */
+@Slf4j
+public class TorrentFetchUtil {
+
+    /**
+     * 同时下载的种子数量, 每个域名另外受 {@link HostLimitUtil} 限制
+     */
+    private static final int THREADS = 4;
+
+    /**
+     * 最多尝试次数
+     */
+    private static final int RETRY = 3;
+
+    /**
+     * 首次重试前等待的毫秒数, 之后每次翻倍
+     */
+    private static final long BACKOFF = 1000;
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, ThreadUtil.newNamedThreadFactory("torrent-fetch-", true));
+
+    /**
+     * 并发下载多个种子文件
+     *
+     * @param ani
+     * @param items
+     * @return 保存成功的条目与种子文件
+     */
+    public static Map<Item, File> fetch(Ani ani, List<Item> items) {
+        Map<Item, Future<File>> futureMap = new LinkedHashMap<>();
+        for (Item item : items) {
+            futureMap.put(item, EXECUTOR.submit(() -> save(ani, item)));
+        }
+
+        Map<Item, File> fileMap = new LinkedHashMap<>();
+        for (Map.Entry<Item, Future<File>> entry : futureMap.entrySet()) {
+            try {
+                File file = entry.getValue().get();
+                if (Objects.nonNull(file)) {
+                    fileMap.put(entry.getKey(), file);
+                }
+            } catch (InterruptedException e) {
+                futureMap.values().forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                String message = ExceptionUtil.getMessage(e);
+                log.error(message, e);
+            }
+        }
+        return fileMap;
+    }
+
+    /**
+     * 下载种子文件, 已存在且校验通过时直接返回
+     *
+     * @param ani
+     * @param item
+     * @return 种子文件, 失败时为 null
+     */
+    public static File save(Ani ani, Item item) {
+        String torrent = item.getTorrent();
+        String reName = item.getReName();
+        String infoHash = item.getInfoHash();
+
+        File saveTorrentFile = TorrentUtil.getTorrent(ani, item);
+        if (saveTorrentFile.exists()) {
+            if (check(saveTorrentFile, infoHash)) {
+                return saveTorrentFile;
+            }
+            log.warn("种子文件不完整, 重新下载 {}", saveTorrentFile);
+            FileUtil.del(saveTorrentFile);
+        }
+
+        log.info("下载种子 {}", reName);
+        String type = ani.getType();
+        if ("dmhy".equals(type)) {
+            try {
+                write(saveTorrentFile, torrent.getBytes(StandardCharsets.UTF_8));
+                return saveTorrentFile;
+            } catch (Exception e) {
+                String message = ExceptionUtil.getMessage(e);
+                log.error("保存磁力链接时出现问题 {}", message);
+                log.error(message, e);
+                return null;
+            }
+        }
+
+        for (int i = 0; i < RETRY; i++) {
+            if (i > 0) {
+                ThreadUtil.sleep(BACKOFF << (i - 1));
+            }
+            try {
+                byte[] bytes = HostLimitUtil.execute(torrent, () -> HttpReq.get(torrent, true)
+                        .thenFunction(res -> {
+                            Assert.isTrue(res.isOk(), "status: {}", res.getStatus());
+                            return res.bodyBytes();
+                        }));
+                String hash = BencodeUtil.getInfoHash(bytes);
+                if (isInfoHash(infoHash)) {
+                    Assert.isTrue(hash.equals(infoHash), "infoHash 不一致 {}", hash);
+                }
+                write(saveTorrentFile, bytes);
+                return saveTorrentFile;
+            } catch (Exception e) {
+                String message = ExceptionUtil.getMessage(e);
+                log.warn("下载种子时出现问题 {} 第 {} 次 {}", reName, i + 1, message);
+                log.debug(message, e);
+            }
+        }
+        log.error("下载种子失败 {} {}", reName, torrent);
+        return null;
+    }
+
+    /**
+     * 校验已保存的种子文件
+     *
+     * @param file
+     * @param infoHash 为空时不校验 infoHash
+     * @return
+     */
+    public static Boolean check(File file, String infoHash) {
+        try {
+            byte[] bytes = FileUtil.readBytes(file);
+            if ("txt".equals(FileUtil.extName(file))) {
+                return StrUtil.isNotBlank(new String(bytes, StandardCharsets.UTF_8));
+            }
+            String hash = BencodeUtil.getInfoHash(bytes);
+            return !isInfoHash(infoHash) || hash.equals(infoHash);
+        } catch (Exception e) {
+            log.debug(ExceptionUtil.getMessage(e), e);
+            return false;
+        }
+    }
+
+    private static boolean isInfoHash(String infoHash) {
+        return StrUtil.isNotBlank(infoHash) && ReUtil.isMatch("[0-9a-f]{40}", infoHash);
+    }
+
+    /**
+     * 先写入临时文件再重命名, 避免留下不完整的文件
+     *
+     * @param file
+     * @param bytes
+     * @throws IOException
+     */
+    private static void write(File file, byte[] bytes) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            FileUtil.writeBytes(bytes, tmp);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            FileUtil.del(tmp);
+        }
+    }
+}
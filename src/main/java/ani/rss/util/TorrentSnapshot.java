@@ -0,0 +1,141 @@
+package ani.rss.util;
+
+import ani.rss.entity.TorrentsInfo;
+import cn.hutool.core.util.EnumUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下载工具任务列表的快照, 短时间内共用一次获取的结果
+ * <p>
+ * 按 hash 与小写的名称建立索引, 添加或删除任务后需要调用 {@link #invalidate()}
+ */
+@Slf4j
+public class TorrentSnapshot {
+
+    /**
+     * 快照有效时间
+     */
+    private static final long TTL = TimeUnit.SECONDS.toMillis(10);
+
+    private static final Object LOCK = new Object();
+
+    private static volatile TorrentSnapshot snapshot;
+
+    private final List<TorrentsInfo> torrentsInfos;
+    private final Map<String, TorrentsInfo> hashMap = new HashMap<>();
+    private final Map<String, TorrentsInfo> nameMap = new HashMap<>();
+    private final long time;
+    private volatile boolean expired = false;
+
+    private TorrentSnapshot(List<TorrentsInfo> torrentsInfos) {
+        this.torrentsInfos = Collections.unmodifiableList(torrentsInfos);
+        this.time = System.currentTimeMillis();
+        for (TorrentsInfo torrentsInfo : torrentsInfos) {
+            String hash = torrentsInfo.getHash();
+            if (StrUtil.isNotBlank(hash)) {
+                hashMap.put(InfoHashSet.normalize(hash), torrentsInfo);
+            }
+            String name = torrentsInfo.getName();
+            if (StrUtil.isNotBlank(name)) {
+                nameMap.put(name.trim().toLowerCase(), torrentsInfo);
+            }
+        }
+    }
+
+    /**
+     * 获取快照, 过期后重新获取, 同时只会有一个线程获取
+     *
+     * @return
+     */
+    public static TorrentSnapshot get() {
+        TorrentSnapshot current = snapshot;
+        if (valid(current)) {
+            return current;
+        }
+        synchronized (LOCK) {
+            current = snapshot;
+            if (valid(current)) {
+                return current;
+            }
+            current = new TorrentSnapshot(TorrentUtil.fetchTorrentsInfos());
+            snapshot = current;
+            log.debug("获取任务列表 共{}个", current.torrentsInfos.size());
+            return current;
+        }
+    }
+
+    /**
+     * 任务列表发生了改变
+     */
+    public static void invalidate() {
+        TorrentSnapshot current = snapshot;
+        if (Objects.nonNull(current)) {
+            current.expired = true;
+        }
+    }
+
+    private static boolean valid(TorrentSnapshot snapshot) {
+        if (Objects.isNull(snapshot) || snapshot.expired) {
+            return false;
+        }
+        return System.currentTimeMillis() - snapshot.time < TTL;
+    }
+
+    public List<TorrentsInfo> getTorrentsInfos() {
+        return torrentsInfos;
+    }
+
+    /**
+     * 按 hash 查找, 不区分大小写, hex 与 base32 视为相同
+     *
+     * @param hash
+     * @return
+     */
+    public Optional<TorrentsInfo> getByHash(String hash) {
+        if (StrUtil.isBlank(hash)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(hashMap.get(InfoHashSet.normalize(hash)));
+    }
+
+    /**
+     * 是否存在 hash 对应的任务
+     *
+     * @param hash
+     * @return
+     */
+    public boolean containsHash(String hash) {
+        if (StrUtil.isBlank(hash)) {
+            return false;
+        }
+        return hashMap.containsKey(InfoHashSet.normalize(hash));
+    }
+
+    /**
+     * 按名称查找, 不区分大小写
+     *
+     * @param name
+     * @return
+     */
+    public Optional<TorrentsInfo> getByName(String name) {
+        if (StrUtil.isBlank(name)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(nameMap.get(name.trim().toLowerCase()));
+    }
+
+    /**
+     * 未完成的任务数量
+     *
+     * @return
+     */
+    public long countDownloading() {
+        return torrentsInfos.stream()
+                .filter(it -> !EnumUtil.equalsIgnoreCase(it.getState(), TorrentsInfo.State.pausedUP.name()))
+                .count();
+    }
+}
@@ -4,7 +4,6 @@ import ani.rss.download.BaseDownload;
 import ani.rss.entity.*;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.text.StrFormatter;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.*;
 import cn.hutool.extra.pinyin.PinyinUtil;
 import cn.hutool.json.JSONUtil;
@@ -15,8 +14,13 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -24,7 +28,17 @@ import java.util.stream.Stream;
 public class TorrentUtil {
 
     @Setter
-    private static BaseDownload baseDownload;
+    private static volatile BaseDownload baseDownload;
+
+    /**
+     * 每个订阅一把锁, 不同订阅可以同时处理
+     */
+    private static final Map<String, ReentrantLock> ANI_LOCK_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 同时下载数量限制由所有订阅共享, 等待队列需要依次添加
+     */
+    private static final ReentrantLock DOWNLOAD_COUNT_LOCK = new ReentrantLock();
 
     private static final Gson GSON = new GsonBuilder()
             .disableHtmlEscaping()
@@ -36,51 +50,164 @@ public class TorrentUtil {
      *
      * @param ani
      */
-    public static synchronized void downloadAni(Ani ani) {
+    public static void downloadAni(Ani ani) {
+        downloadAni(ani, AniUtil.getItems(ani, true));
+    }
+
+    /**
+     * 下载动漫
+     *
+     * @param ani
+     * @param items 已获取的视频列表, 为 null 时表示 rss 未发生变化
+     */
+    public static void downloadAni(Ani ani, List<Item> items) {
+        downloadAni(ani, items, false);
+    }
+
+    /**
+     * 下载动漫
+     *
+     * @param ani
+     * @param items   已获取的视频列表, 为 null 时表示 rss 未发生变化
+     * @param partial 视频列表只包含部分剧集 (例如来自聚合 rss), 不更新集数也不检测遗漏
+     */
+    public static void downloadAni(Ani ani, List<Item> items, Boolean partial) {
+        if (Objects.isNull(items)) {
+            RssUtil.SKIP.incrementAndGet();
+            log.debug("{} rss未发生变化, 跳过", ani.getTitle());
+            return;
+        }
+
+        ReentrantLock aniLock = ANI_LOCK_MAP.computeIfAbsent(Objects.toString(ani.getId(), ""), k -> new ReentrantLock());
+        aniLock.lock();
+        try {
+            doDownloadAni(ani, items, partial);
+        } finally {
+            aniLock.unlock();
+        }
+    }
+
+    /**
+     * 按排队顺序添加等待队列中的条目, 直到达到同时下载数量限制
+     */
+    public static void downloadQueue() {
+        if (DownloadQueueUtil.size() < 1) {
+            return;
+        }
+        DOWNLOAD_COUNT_LOCK.lock();
+        try {
+            TorrentSnapshot torrentSnapshot = TorrentSnapshot.get();
+            long free = Long.MAX_VALUE;
+            if (DownloadQueueUtil.enable()) {
+                free = ConfigUtil.CONFIG.getDownloadCount() - torrentSnapshot.countDownloading();
+            }
+
+            Map<String, Ani> aniMap = new LinkedHashMap<>();
+            Map<String, List<DownloadQueueUtil.Pending>> pendingMap = new LinkedHashMap<>();
+            while (free > 0) {
+                DownloadQueueUtil.Pending pending = DownloadQueueUtil.poll();
+                if (Objects.isNull(pending)) {
+                    break;
+                }
+                String aniId = pending.getAni().getId();
+                Item item = pending.getItem();
+                String hash = item.getInfoHash();
+
+                // 订阅已删除或已停用
+                Optional<Ani> first = AniUtil.ANI_LIST.stream()
+                        .filter(it -> Objects.equals(it.getId(), aniId))
+                        .findFirst();
+                if (first.isEmpty() || !first.get().getEnable()) {
+                    continue;
+                }
+                Ani ani = first.get();
+
+                // 排队期间已被处理
+                if (SeenUtil.get(ani).getItems().containsKey(SeenUtil.getKey(item))
+                        || HistoryUtil.downloaded(hash)
+                        || torrentSnapshot.containsHash(hash)) {
+                    continue;
+                }
+                aniMap.put(aniId, ani);
+                pendingMap.computeIfAbsent(aniId, k -> new ArrayList<>()).add(pending);
+                free--;
+            }
+
+            boolean added = false;
+            for (Map.Entry<String, List<DownloadQueueUtil.Pending>> entry : pendingMap.entrySet()) {
+                Ani ani = aniMap.get(entry.getKey());
+                List<DownloadQueueUtil.Pending> pendings = entry.getValue();
+                ReentrantLock aniLock = ANI_LOCK_MAP.computeIfAbsent(entry.getKey(), k -> new ReentrantLock());
+                // 订阅正在处理, 放回队列下次再添加
+                if (!aniLock.tryLock()) {
+                    pendings.forEach(DownloadQueueUtil::requeue);
+                    continue;
+                }
+                try {
+                    List<Item> items = pendings.stream()
+                            .map(DownloadQueueUtil.Pending::getItem)
+                            .collect(Collectors.toList());
+                    for (Item item : items) {
+                        log.info("添加下载 {}", item.getReName());
+                    }
+                    addDownloads(ani, items, SeenUtil.get(ani).getItems());
+                    added = true;
+                } finally {
+                    aniLock.unlock();
+                }
+            }
+            if (added) {
+                SeenUtil.sync();
+            }
+        } finally {
+            DOWNLOAD_COUNT_LOCK.unlock();
+        }
+    }
+
+    private static void doDownloadAni(Ani ani, List<Item> items, Boolean partial) {
         Config config = ConfigUtil.CONFIG;
         Boolean autoDisabled = config.getAutoDisabled();
-        Integer downloadCount = config.getDownloadCount();
-        Boolean backRss = config.getBackRss();
 
         String title = ani.getTitle();
         Integer season = ani.getSeason();
 
-        List<TorrentsInfo> torrentsInfos = getTorrentsInfos();
+        TorrentSnapshot torrentSnapshot = TorrentSnapshot.get();
 
-        Set<String> downloadNameList = torrentsInfos.stream()
-                .map(TorrentsInfo::getName)
-                .map(String::trim)
-                .map(String::toLowerCase)
-                .collect(Collectors.toSet());
-
-        Set<String> hashList = torrentsInfos
-                .stream().map(TorrentsInfo::getHash)
-                .map(String::trim)
-                .map(String::toLowerCase)
-                .collect(Collectors.toSet());
+        Map<String, Seen.State> seenItems = SeenUtil.get(ani).getItems();
 
         int currentDownloadCount = 0;
-        List<Item> items = AniUtil.getItems(ani);
-        ItemsUtil.omit(ani, items);
+        // 所有条目都已处理, 未处理完成时下次不能跳过
+        boolean complete = true;
+        if (!partial) {
+            ItemsUtil.omit(ani, items);
+        }
         log.debug("{} 共 {} 个", title, items.size());
 
-
-        long count = getTorrentsInfos()
-                .stream()
-                .filter(it -> !EnumUtil.equalsIgnoreCase(it.getState(), TorrentsInfo.State.pausedUP.name()))
-                .count();
+        // 需要添加下载的条目
+        List<Item> downloadItems = new ArrayList<>();
 
         for (Item item : items) {
-            log.debug(JSONUtil.formatJsonStr(GSON.toJson(item)));
             String reName = item.getReName();
-            File torrent = getTorrent(ani, item);
             Boolean master = item.getMaster();
-            String hash = FileUtil.mainName(torrent)
-                    .trim().toLowerCase();
+            String key = SeenUtil.getKey(item);
+
+            // 之前已处理过
+            Seen.State state = seenItems.get(key);
+            if (Objects.nonNull(state)) {
+                log.debug("已处理过 {} {}", state, reName);
+                if (master) {
+                    currentDownloadCount++;
+                }
+                continue;
+            }
+
+            log.debug(JSONUtil.formatJsonStr(GSON.toJson(item)));
+            String hash = item.getInfoHash();
 
             // 已经下载过
-            if (hashList.contains(hash) || downloadNameList.contains(reName)) {
-                log.debug("已有下载任务 {}", reName);
+            if (HistoryUtil.downloaded(hash)) {
+                log.debug("下载记录已存在 {}", reName);
+                seenItems.put(key, Seen.State.DOWNLOADED);
                 if (master) {
                     currentDownloadCount++;
                 }
@@ -88,33 +215,105 @@ public class TorrentUtil {
             }
 
             // 已经下载过
-            if (torrent.exists()) {
-                log.debug("种子记录已存在 {}", reName);
+            if (torrentSnapshot.containsHash(hash) || torrentSnapshot.getByName(reName).isPresent()) {
+                log.debug("已有下载任务 {}", reName);
+                HistoryUtil.add(ani, item, Seen.State.DOWNLOADED);
+                seenItems.put(key, Seen.State.DOWNLOADED);
                 if (master) {
                     currentDownloadCount++;
                 }
                 continue;
             }
 
-            // 未开启rename不进行检测
-            if (itemDownloaded(ani, item, true)) {
+            // 未开启rename不进行检测, 任务列表已在上面检查过
+            if (itemDownloaded(ani, item, false)) {
                 log.debug("本地文件已存在 {}", reName);
+                HistoryUtil.add(ani, item, Seen.State.LOCAL);
+                seenItems.put(key, Seen.State.LOCAL);
                 if (master) {
                     currentDownloadCount++;
                 }
                 continue;
             }
 
-            // 同时下载数量限制
-            if (downloadCount > 0) {
-                if (count >= downloadCount) {
-                    log.debug("达到同时下载数量限制 {}", downloadCount);
-                    continue;
-                }
+            // 同时下载数量限制, 进入全局队列等待空位
+            if (DownloadQueueUtil.enable()) {
+                log.debug("加入等待队列 {}", reName);
+                DownloadQueueUtil.add(ani, item);
+                complete = false;
+                continue;
             }
 
             log.info("添加下载 {}", reName);
-            File saveTorrent = saveTorrent(ani, item);
+            downloadItems.add(item);
+        }
+
+        if (!addDownloads(ani, downloadItems, seenItems)) {
+            complete = false;
+        }
+        // 种子下载失败的条目未记录为已处理, 下次重试, 不计入已下载集数
+        currentDownloadCount += (int) downloadItems.stream()
+                .filter(Item::getMaster)
+                .filter(item -> seenItems.containsKey(SeenUtil.getKey(item)))
+                .count();
+
+        if (complete) {
+            RssUtil.commit(ani);
+        } else {
+            RssUtil.rollback(ani);
+        }
+
+        if (partial) {
+            return;
+        }
+
+        long size = items.stream().filter(it -> !it.getReName().endsWith(".5")).count();
+        if (size > 0 && ani.getCurrentEpisodeNumber() != size) {
+            ani.setCurrentEpisodeNumber((int) size);
+            AniUtil.sync();
+        }
+
+        if (!autoDisabled) {
+            return;
+        }
+        Integer totalEpisodeNumber = ani.getTotalEpisodeNumber();
+        if (totalEpisodeNumber < 1) {
+            return;
+        }
+        if (currentDownloadCount >= totalEpisodeNumber) {
+            ani.setEnable(false);
+            log.info("{} 第 {} 季 共 {} 集 已全部下载完成, 自动停止订阅", title, season, totalEpisodeNumber);
+            AniUtil.sync();
+        }
+    }
+
+    /**
+     * 下载种子文件并添加下载, 记录处理结果
+     *
+     * @param ani
+     * @param downloadItems 需要添加下载的条目
+     * @param seenItems     订阅已处理的条目
+     * @return 是否全部添加成功
+     */
+    private static boolean addDownloads(Ani ani, List<Item> downloadItems, Map<String, Seen.State> seenItems) {
+        if (downloadItems.isEmpty()) {
+            return true;
+        }
+        Boolean backRss = ConfigUtil.CONFIG.getBackRss();
+        // 按保存位置收集需要添加的种子, 最后批量添加
+        Map<String, Map<Item, File>> downloadMap = new LinkedHashMap<>();
+
+        boolean complete = true;
+        // 并发下载种子文件
+        Map<Item, File> torrentMap = TorrentFetchUtil.fetch(ani, downloadItems);
+        for (Item item : downloadItems) {
+            String reName = item.getReName();
+            File saveTorrent = torrentMap.get(item);
+            if (Objects.isNull(saveTorrent)) {
+                // 不记录为已处理, 下次重试
+                complete = false;
+                continue;
+            }
             List<File> downloadPathList = getDownloadPath(ani);
 
             // 开启备用rss会自动删除本地已存在视频
@@ -162,31 +361,26 @@ public class TorrentUtil {
             String savePath = downloadPathList
                     .get(0)
                     .toString();
-            download(ani, item, savePath, saveTorrent);
-            if (master) {
-                currentDownloadCount++;
-            }
-            count++;
-        }
-
-        long size = items.stream().filter(it -> !it.getReName().endsWith(".5")).count();
-        if (size > 0 && ani.getCurrentEpisodeNumber() != size) {
-            ani.setCurrentEpisodeNumber((int) size);
-            AniUtil.sync();
+            downloadMap.computeIfAbsent(savePath, k -> new LinkedHashMap<>())
+                    .put(item, saveTorrent);
         }
 
-        if (!autoDisabled) {
-            return;
-        }
-        Integer totalEpisodeNumber = ani.getTotalEpisodeNumber();
-        if (totalEpisodeNumber < 1) {
-            return;
-        }
-        if (currentDownloadCount >= totalEpisodeNumber) {
-            ani.setEnable(false);
-            log.info("{} 第 {} 季 共 {} 集 已全部下载完成, 自动停止订阅", title, season, totalEpisodeNumber);
-            AniUtil.sync();
+        for (Map.Entry<String, Map<Item, File>> entry : downloadMap.entrySet()) {
+            Map<Item, Boolean> result = download(ani, entry.getKey(), entry.getValue());
+            for (Map.Entry<Item, Boolean> itemEntry : result.entrySet()) {
+                Item item = itemEntry.getKey();
+                String key = SeenUtil.getKey(item);
+                if (itemEntry.getValue()) {
+                    HistoryUtil.add(ani, item, Seen.State.DOWNLOADED);
+                    seenItems.put(key, Seen.State.DOWNLOADED);
+                } else {
+                    HistoryUtil.add(ani, item, Seen.State.FAILED);
+                    seenItems.put(key, Seen.State.FAILED);
+                    complete = false;
+                }
+            }
         }
+        return complete;
     }
 
     public static File getTorrentDir(Ani ani) {
@@ -200,7 +394,6 @@ public class TorrentUtil {
         if (ova) {
             torrents = new File(StrFormatter.format("{}/torrents/{}", configDir, title));
         }
-        FileUtil.mkdir(torrents);
         return torrents;
     }
 
@@ -217,36 +410,12 @@ public class TorrentUtil {
     /**
      * 下载种子文件
      *
+     * @param ani
      * @param item
+     * @return 种子文件, 失败时为 null
      */
     public static File saveTorrent(Ani ani, Item item) {
-        String torrent = item.getTorrent();
-        String reName = item.getReName();
-
-        log.info("下载种子 {}", reName);
-        File saveTorrentFile = getTorrent(ani, item);
-        if (saveTorrentFile.exists()) {
-            return saveTorrentFile;
-        }
-
-        try {
-            String type = ani.getType();
-            if ("dmhy".equals(type)) {
-                FileUtil.writeUtf8String(torrent, saveTorrentFile);
-                return saveTorrentFile;
-            }
-
-            return HttpReq.get(torrent, true)
-                    .thenFunction(res -> {
-                        FileUtil.writeFromStream(res.bodyStream(), saveTorrentFile, true);
-                        return saveTorrentFile;
-                    });
-        } catch (Exception e) {
-            String message = ExceptionUtil.getMessage(e);
-            log.error("下载种子时出现问题 {}", message);
-            log.error(message, e);
-        }
-        return saveTorrentFile;
+        return TorrentFetchUtil.save(ani, item);
     }
 
     /**
@@ -280,16 +449,10 @@ public class TorrentUtil {
         String reName = item.getReName();
         Double episode = item.getEpisode();
 
-        if (downloadList) {
-            List<TorrentsInfo> torrentsInfos = getTorrentsInfos();
-            for (TorrentsInfo torrentsInfo : torrentsInfos) {
-                String name = torrentsInfo.getName();
-                if (name.equalsIgnoreCase(reName)) {
-                    log.info("已存在下载任务 {}", reName);
-                    saveTorrent(ani, item);
-                    return true;
-                }
-            }
+        if (downloadList && TorrentSnapshot.get().getByName(reName).isPresent()) {
+            log.info("已存在下载任务 {}", reName);
+            saveTorrent(ani, item);
+            return true;
         }
 
         List<File> files = getDownloadPath(ani)
@@ -449,15 +612,27 @@ public class TorrentUtil {
      *
      * @return
      */
-    public static synchronized Boolean login() {
-        ThreadUtil.sleep(1000);
+    public static Boolean login() {
         Config config = ConfigUtil.CONFIG;
         String downloadPath = config.getDownloadPath();
         if (StrUtil.isBlank(downloadPath)) {
             log.warn("下载位置未设置");
             return false;
         }
-        return baseDownload.login(ConfigUtil.CONFIG);
+        Boolean login = baseDownload.login(ConfigUtil.CONFIG);
+        if (login) {
+            baseDownload.listen();
+        }
+        return login;
+    }
+
+    /**
+     * 下载工具是否在推送事件
+     *
+     * @return
+     */
+    public static Boolean isListening() {
+        return baseDownload.isListening();
     }
 
     /**
@@ -467,50 +642,106 @@ public class TorrentUtil {
      * @param item
      * @param savePath
      * @param torrentFile
+     * @return 是否添加成功
+     */
+    public static Boolean download(Ani ani, Item item, String savePath, File torrentFile) {
+        return download(ani, savePath, Map.of(item, torrentFile)).get(item);
+    }
+
+    /**
+     * 批量下载, 同一保存位置的种子一次添加
+     *
+     * @param ani
+     * @param savePath
+     * @param torrents 条目与种子文件
+     * @return 每个条目是否添加成功
      */
-    public static synchronized void download(Ani ani, Item item, String savePath, File torrentFile) {
-        String name = item.getReName();
+    public static Map<Item, Boolean> download(Ani ani, String savePath, Map<Item, File> torrents) {
         Boolean ova = ani.getOva();
-        Boolean master = item.getMaster();
-        String subgroup = item.getSubgroup();
 
         Config config = ConfigUtil.CONFIG;
         Boolean backRss = config.getBackRss();
 
-        if (!torrentFile.exists()) {
-            log.error("种子下载出现问题 {} {}", name, torrentFile.getAbsolutePath());
-            MessageUtil.send(ConfigUtil.CONFIG, ani, StrFormatter.format("种子下载出现问题 {} {}", name, torrentFile.getAbsolutePath()));
-            return;
-        }
-        ThreadUtil.sleep(1000);
-        savePath = savePath.replace("\\", "/");
+        Map<Item, Boolean> result = new LinkedHashMap<>();
+        // 种子文件与名称
+        Map<File, String> torrentFiles = new LinkedHashMap<>();
+        for (Map.Entry<Item, File> entry : torrents.entrySet()) {
+            Item item = entry.getKey();
+            File torrentFile = entry.getValue();
+            String name = item.getReName();
+            Boolean master = item.getMaster();
+            String subgroup = item.getSubgroup();
 
+            if (!torrentFile.exists()) {
+                log.error("种子下载出现问题 {} {}", name, torrentFile.getAbsolutePath());
+                MessageUtil.send(ConfigUtil.CONFIG, ani, StrFormatter.format("种子下载出现问题 {} {}", name, torrentFile.getAbsolutePath()));
+                result.put(item, false);
+                continue;
+            }
 
-        String text = StrFormatter.format("[{}] {} 已更新", subgroup, name);
-        if (backRss && !ani.getBackRssList().isEmpty()) {
-            text = StrFormatter.format("({}) {}", master ? "主RSS" : "备用RSS", text);
+            String text = StrFormatter.format("[{}] {} 已更新", subgroup, name);
+            if (backRss && !ani.getBackRssList().isEmpty()) {
+                text = StrFormatter.format("({}) {}", master ? "主RSS" : "备用RSS", text);
+            }
+            MessageUtil.send(ConfigUtil.CONFIG, ani, text);
+            torrentFiles.put(torrentFile, name);
+        }
+        if (torrentFiles.isEmpty()) {
+            return result;
         }
-        MessageUtil.send(ConfigUtil.CONFIG, ani, text);
 
+        HostLimitUtil.acquire(HostLimitUtil.DOWNLOAD, ConfigUtil.CONFIG.getHost());
+        savePath = savePath.replace("\\", "/");
+
+        Map<File, Boolean> downloadResult = Map.of();
         try {
-            if (baseDownload.download(name, savePath, torrentFile, ova)) {
-                return;
-            }
+            downloadResult = baseDownload.download(savePath, torrentFiles, ova);
         } catch (Exception e) {
             String message = ExceptionUtil.getMessage(e);
             log.error(message, e);
+        } finally {
+            TorrentSnapshot.invalidate();
+        }
+
+        Boolean watchErrorTorrent = config.getWatchErrorTorrent();
+        for (Map.Entry<Item, File> entry : torrents.entrySet()) {
+            Item item = entry.getKey();
+            File torrentFile = entry.getValue();
+            if (!torrentFiles.containsKey(torrentFile)) {
+                continue;
+            }
+            String name = item.getReName();
+            if (Boolean.TRUE.equals(downloadResult.get(torrentFile))) {
+                if (watchErrorTorrent) {
+                    // 后台检测是否出现在任务列表中
+                    VerifyUtil.add(ani, name, FileUtil.mainName(torrentFile));
+                }
+                result.put(item, true);
+                continue;
+            }
+            log.error("{} 添加失败，疑似为坏种", name);
+            MessageUtil.send(ConfigUtil.CONFIG, ani, StrFormatter.format("{} 添加失败，疑似为坏种", name));
+            result.put(item, false);
         }
-        log.error("{} 添加失败，疑似为坏种", name);
-        MessageUtil.send(ConfigUtil.CONFIG, ani, StrFormatter.format("{} 添加失败，疑似为坏种", name));
+        return result;
+    }
+
+    /**
+     * 获取任务列表, 短时间内共用同一个快照
+     *
+     * @return
+     */
+    public static List<TorrentsInfo> getTorrentsInfos() {
+        return TorrentSnapshot.get().getTorrentsInfos();
     }
 
     /**
-     * 获取任务列表
+     * 从下载工具获取任务列表
      *
      * @return
      */
-    public static synchronized List<TorrentsInfo> getTorrentsInfos() {
-        ThreadUtil.sleep(1000);
+    static List<TorrentsInfo> fetchTorrentsInfos() {
+        HostLimitUtil.acquire(HostLimitUtil.DOWNLOAD, ConfigUtil.CONFIG.getHost());
         return baseDownload.getTorrentsInfos();
     }
 
@@ -519,20 +750,34 @@ public class TorrentUtil {
      *
      * @param torrentsInfo
      */
-    public static synchronized void delete(TorrentsInfo torrentsInfo) {
+    public static void delete(TorrentsInfo torrentsInfo) {
+        delete(List.of(torrentsInfo));
+    }
+
+    /**
+     * 批量删除已完成任务, 下载工具支持时一次请求完成
+     *
+     * @param torrentsInfos
+     */
+    public static void delete(List<TorrentsInfo> torrentsInfos) {
         Config config = ConfigUtil.CONFIG;
         Boolean delete = config.getDelete();
+        if (!delete) {
+            return;
+        }
 
-        TorrentsInfo.State state = torrentsInfo.getState();
-        String name = torrentsInfo.getName();
-        if (!EnumUtil.equalsIgnoreCase(state, TorrentsInfo.State.pausedUP.name())) {
+        List<TorrentsInfo> completed = torrentsInfos.stream()
+                .filter(it -> EnumUtil.equalsIgnoreCase(it.getState(), TorrentsInfo.State.pausedUP.name()))
+                .collect(Collectors.toList());
+        if (completed.isEmpty()) {
             return;
         }
-        if (delete) {
-            log.info("删除已完成任务 {}", name);
-            ThreadUtil.sleep(1000);
-            baseDownload.delete(torrentsInfo);
+        for (TorrentsInfo torrentsInfo : completed) {
+            log.info("删除已完成任务 {}", torrentsInfo.getName());
         }
+        HostLimitUtil.acquire(HostLimitUtil.DOWNLOAD, ConfigUtil.CONFIG.getHost());
+        baseDownload.delete(completed);
+        TorrentSnapshot.invalidate();
     }
 
     /**
@@ -540,11 +785,11 @@ public class TorrentUtil {
      *
      * @param torrentsInfo
      */
-    public static synchronized void rename(TorrentsInfo torrentsInfo) {
+    public static void rename(TorrentsInfo torrentsInfo) {
         Config config = ConfigUtil.CONFIG;
         Boolean rename = config.getRename();
         if (rename) {
-            ThreadUtil.sleep(1000);
+            HostLimitUtil.acquire(HostLimitUtil.DOWNLOAD, ConfigUtil.CONFIG.getHost());
             baseDownload.rename(torrentsInfo);
         }
     }
@@ -558,7 +803,14 @@ public class TorrentUtil {
                 .filter(aClass -> aClass.getSimpleName().equals(download))
                 .map(aClass -> (BaseDownload) ReflectUtil.newInstance(aClass))
                 .findFirst()
-                .ifPresent(TorrentUtil::setBaseDownload);
+                .ifPresent(newBaseDownload -> {
+                    // 断开旧实例的连接
+                    if (Objects.nonNull(baseDownload)) {
+                        baseDownload.logout();
+                    }
+                    setBaseDownload(newBaseDownload);
+                });
+        TorrentSnapshot.invalidate();
         BaseDownload.renameCache.clear();
         log.info("下载工具 {}", download);
     }
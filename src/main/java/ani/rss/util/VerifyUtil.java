@@ -0,0 +1,120 @@
+package ani.rss.util;
+
+import ani.rss.entity.Ani;
+import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.thread.ThreadUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 检测添加的种子是否出现在任务列表中
+ * <p>
+ * 添加后立即返回, 由后台线程每次获取一次任务列表统一检查所有待检测的种子
+ */
+@Slf4j
+public class VerifyUtil {
+
+    /**
+     * 检测间隔
+     */
+    private static final long INTERVAL = TimeUnit.SECONDS.toMillis(2);
+
+    /**
+     * 超时时间, 超时后视为坏种
+     */
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(20);
+
+    private static final Map<String, Verify> VERIFY_MAP = new ConcurrentHashMap<>();
+
+    private static volatile ScheduledExecutorService executor;
+
+    /**
+     * 添加待检测的种子
+     *
+     * @param ani
+     * @param name 名称
+     * @param hash
+     */
+    public static void add(Ani ani, String name, String hash) {
+        Verify verify = new Verify(ani, name, hash, System.currentTimeMillis() + TIMEOUT);
+        VERIFY_MAP.put(InfoHashSet.normalize(hash), verify);
+        start();
+    }
+
+    /**
+     * 待检测的数量
+     *
+     * @return
+     */
+    public static int size() {
+        return VERIFY_MAP.size();
+    }
+
+    private static void start() {
+        if (Objects.nonNull(executor)) {
+            return;
+        }
+        synchronized (VerifyUtil.class) {
+            if (Objects.nonNull(executor)) {
+                return;
+            }
+            executor = Executors.newSingleThreadScheduledExecutor(ThreadUtil.newNamedThreadFactory("verify-", true));
+            executor.scheduleWithFixedDelay(VerifyUtil::check, INTERVAL, INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void check() {
+        if (VERIFY_MAP.isEmpty()) {
+            return;
+        }
+        TorrentSnapshot torrentSnapshot;
+        try {
+            // 刷新共用的任务列表
+            TorrentSnapshot.invalidate();
+            torrentSnapshot = TorrentSnapshot.get();
+        } catch (Exception e) {
+            String message = ExceptionUtil.getMessage(e);
+            log.error(message, e);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Iterator<Verify> iterator = VERIFY_MAP.values().iterator();
+        while (iterator.hasNext()) {
+            Verify verify = iterator.next();
+            String name = verify.name;
+            if (torrentSnapshot.containsHash(verify.hash) || torrentSnapshot.getByName(name).isPresent()) {
+                log.debug("添加成功 {}", name);
+                iterator.remove();
+                continue;
+            }
+            if (now < verify.deadline) {
+                continue;
+            }
+            iterator.remove();
+            log.error("{} 添加失败，疑似为坏种", name);
+            MessageUtil.send(ConfigUtil.CONFIG, verify.ani, StrFormatter.format("{} 添加失败，疑似为坏种", name));
+        }
+    }
+
+    private static class Verify {
+        private final Ani ani;
+        private final String name;
+        private final String hash;
+        private final long deadline;
+
+        Verify(Ani ani, String name, String hash, long deadline) {
+            this.ani = ani;
+            this.name = name;
+            this.hash = hash;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+import ani.rss.download.BaseDownload;
+import ani.rss.entity.Config;
+import ani.rss.entity.TorrentsInfo;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 模拟的下载工具, 记录添加顺序、重复添加与同一订阅的并发添加
+ */
+public class StubDownload implements BaseDownload {
+    /**
+     * 每次请求的耗时 毫秒
+     */
+    final long delay;
+
+    final Map<String, TorrentsInfo> torrents = new ConcurrentHashMap<>();
+    final List<String> added = Collections.synchronizedList(new ArrayList<>());
+    final Set<String> adding = ConcurrentHashMap.newKeySet();
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger maxActive = new AtomicInteger();
+    final AtomicInteger duplicate = new AtomicInteger();
+    final AtomicInteger sameAni = new AtomicInteger();
+
+    StubDownload(long delay) {
+        this.delay = delay;
+    }
+
+    void io() {
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        if (delay > 0) {
+            ThreadUtil.sleep(delay);
+        }
+        active.decrementAndGet();
+    }
+
+    @Override
+    public Boolean login(Config config) {
+        io();
+        return true;
+    }
+
+    @Override
+    public List<TorrentsInfo> getTorrentsInfos() {
+        io();
+        return new ArrayList<>(torrents.values());
+    }
+
+    @Override
+    public Boolean download(String name, String savePath, File torrentFile, Boolean ova) {
+        String aniTitle = StrUtil.subBefore(name, " S01E", true);
+        if (!adding.add(aniTitle)) {
+            sameAni.incrementAndGet();
+        }
+        try {
+            io();
+            String hash = StrUtil.subAfter(FileUtil.readUtf8String(torrentFile), "btih:", true);
+            TorrentsInfo torrentsInfo = new TorrentsInfo()
+                    .setHash(hash)
+                    .setName(name)
+                    .setState(TorrentsInfo.State.downloading)
+                    .setTags(tag);
+            if (Objects.nonNull(torrents.putIfAbsent(hash, torrentsInfo))) {
+                duplicate.incrementAndGet();
+            }
+            added.add(name);
+            return true;
+        } finally {
+            adding.remove(aniTitle);
+        }
+    }
+
+    @Override
+    public void delete(TorrentsInfo torrentsInfo) {
+        io();
+    }
+
+    @Override
+    public void rename(TorrentsInfo torrentsInfo) {
+        io();
+    }
+}
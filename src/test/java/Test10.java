@@ -0,0 +1,113 @@
+import ani.rss.entity.Ani;
+import ani.rss.entity.Config;
+import ani.rss.entity.Item;
+import ani.rss.entity.TorrentsInfo;
+import ani.rss.util.ConfigUtil;
+import ani.rss.util.ItemsUtil;
+import ani.rss.util.TorrentUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.thread.ThreadUtil;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 并发压力测试: rss 任务、重命名任务、手动刷新、预览同时进行
+ * <p>
+ * 使用模拟的下载工具, 每次请求耗时 20ms。
+ * 检查同一个订阅不会被同时处理、每个种子只添加一次, 以及不同订阅之间确实可以并行
+ */
+public class Test10 {
+    static final int ANI_COUNT = 8;
+    static final int EPISODE_COUNT = 6;
+
+    public static void main(String[] args) throws Exception {
+        File downloadDir = FileUtil.mkdir(FileUtil.file(FileUtil.getTmpDir(), "ani-rss-test10"));
+        Config config = ConfigUtil.CONFIG;
+        config.setDownloadPath(downloadDir.getAbsolutePath())
+                .setRename(false)
+                .setDelete(true)
+                .setWatchErrorTorrent(false)
+                .setDownloadCount(0);
+
+        Runnable restore = TestEnv.protectConfig();
+        StubDownload stub = new StubDownload(20);
+        TorrentUtil.setBaseDownload(stub);
+
+        List<Ani> aniList = new ArrayList<>();
+        Map<Ani, List<Item>> itemsMap = new HashMap<>();
+        for (int i = 0; i < ANI_COUNT; i++) {
+            Ani ani = Ani.bulidAni()
+                    .setId("test10-" + i)
+                    .setTitle("ani-rss-test10-" + i)
+                    .setType("dmhy")
+                    .setCurrentEpisodeNumber(EPISODE_COUNT)
+                    .setTotalEpisodeNumber(0);
+            aniList.add(ani);
+            itemsMap.put(ani, TestEnv.items(ani, i * 1000, EPISODE_COUNT));
+        }
+
+        int threads = 8;
+        ExecutorService executor = ThreadUtil.newExecutor(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        long start = System.currentTimeMillis();
+        for (int t = 0; t < threads; t++) {
+            int n = t;
+            executor.execute(() -> {
+                try {
+                    for (int round = 0; round < 3; round++) {
+                        if (n == 0) {
+                            // 重命名任务
+                            for (TorrentsInfo torrentsInfo : TorrentUtil.getTorrentsInfos()) {
+                                TorrentUtil.rename(torrentsInfo);
+                            }
+                            continue;
+                        }
+                        if (n == 1) {
+                            // 预览
+                            for (Ani ani : aniList) {
+                                for (Item item : itemsMap.get(ani)) {
+                                    TorrentUtil.getTorrent(ani, item).exists();
+                                }
+                                ItemsUtil.omit(ani, itemsMap.get(ani));
+                            }
+                            continue;
+                        }
+                        // rss 任务与手动刷新, 不同线程从不同位置开始
+                        for (int i = 0; i < aniList.size(); i++) {
+                            Ani ani = aniList.get((i + n) % aniList.size());
+                            TorrentUtil.downloadAni(ani, itemsMap.get(ani));
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executor.shutdown();
+        long time = System.currentTimeMillis() - start;
+
+        for (Ani ani : aniList) {
+            FileUtil.del(TorrentUtil.getTorrentDir(ani).getParentFile());
+        }
+        FileUtil.del(downloadDir);
+        restore.run();
+
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException(errors.get(0));
+        }
+        TestEnv.check(stub.duplicate.get() == 0, "重复添加 {} 次", stub.duplicate.get());
+        TestEnv.check(stub.sameAni.get() == 0, "同一订阅被同时处理 {} 次", stub.sameAni.get());
+        TestEnv.check(stub.torrents.size() == ANI_COUNT * EPISODE_COUNT, "添加数量不正确 {}", stub.torrents.size());
+        System.out.println(StrFormatter.format("添加 {} 个, 耗时 {} ms, 下载工具最大并发 {}",
+                stub.torrents.size(), time, stub.maxActive.get()));
+        TestEnv.check(stub.maxActive.get() >= 2, "未能并行处理");
+    }
+}
@@ -0,0 +1,116 @@
+import ani.rss.util.InfoHashSet;
+import cn.hutool.core.codec.Base32;
+import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.RandomUtil;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * InfoHashSet 与 HashSet 对比: 随机增删结果一致, hex 与 base32 视为同一个, 以及 10 万个时的内存与耗时
+ */
+public class Test11 {
+    public static void main(String[] args) {
+        // 小范围随机增删, 制造大量冲突与删除后的前移
+        InfoHashSet infoHashSet = new InfoHashSet();
+        Set<String> hashSet = new HashSet<>();
+        List<String> pool = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            pool.add(HexUtil.encodeHexStr(RandomUtil.randomBytes(20)));
+        }
+        for (int i = 0; i < 500000; i++) {
+            String hash = pool.get(RandomUtil.randomInt(pool.size()));
+            int op = RandomUtil.randomInt(3);
+            boolean expected;
+            boolean actual;
+            if (op == 0) {
+                expected = hashSet.add(hash);
+                actual = infoHashSet.add(hash.toUpperCase());
+            } else if (op == 1) {
+                expected = hashSet.remove(hash);
+                actual = infoHashSet.remove(hash);
+            } else {
+                expected = hashSet.contains(hash);
+                actual = infoHashSet.contains(hash);
+            }
+            if (expected != actual || hashSet.size() != infoHashSet.size()) {
+                throw new IllegalStateException(StrFormatter.format("结果不一致 op: {} {}", op, hash));
+            }
+        }
+        System.out.println(StrFormatter.format("随机增删结果一致 剩余 {} 个", infoHashSet.size()));
+
+        // hex 与 base32
+        for (int i = 0; i < 10000; i++) {
+            byte[] bytes = RandomUtil.randomBytes(20);
+            String hex = HexUtil.encodeHexStr(bytes);
+            String base32 = Base32.encode(bytes);
+            if (!InfoHashSet.normalize(base32).equals(hex) || !InfoHashSet.normalize(base32.toLowerCase()).equals(hex)) {
+                throw new IllegalStateException(StrFormatter.format("base32 转换错误 {} {}", base32, hex));
+            }
+            InfoHashSet set = new InfoHashSet();
+            set.add(base32);
+            if (!set.contains(hex) || set.add(hex)) {
+                throw new IllegalStateException(StrFormatter.format("base32 与 hex 不一致 {}", hex));
+            }
+        }
+        if (new InfoHashSet().add("not a hash") || InfoHashSet.isInfoHash(HexUtil.encodeHexStr(RandomUtil.randomBytes(19)))) {
+            throw new IllegalStateException("格式错误的 infoHash 被加入");
+        }
+        System.out.println("hex 与 base32 一致");
+
+        int n = 100000;
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            hashes.add(HexUtil.encodeHexStr(RandomUtil.randomBytes(20)));
+        }
+        bench("InfoHashSet", hashes, () -> {
+            InfoHashSet set = new InfoHashSet();
+            hashes.forEach(set::add);
+            return set;
+        }, (set, hash) -> ((InfoHashSet) set).contains(hash));
+        bench("HashSet    ", hashes, () -> {
+            Set<String> set = new HashSet<>();
+            hashes.forEach(hash -> set.add(new String(hash.toCharArray()).toLowerCase()));
+            return set;
+        }, (set, hash) -> ((Set<?>) set).contains(hash.trim().toLowerCase()));
+    }
+
+    interface Contains {
+        boolean apply(Object set, String hash);
+    }
+
+    static void bench(String name, List<String> hashes, java.util.function.Supplier<Object> build, Contains contains) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        Object set = build.get();
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+
+        int found = 0;
+        for (int r = 0; r < 5; r++) {
+            for (String hash : hashes) {
+                if (contains.apply(set, hash)) {
+                    found++;
+                }
+            }
+        }
+        long start = System.nanoTime();
+        for (int r = 0; r < 10; r++) {
+            for (String hash : hashes) {
+                if (contains.apply(set, hash)) {
+                    found++;
+                }
+            }
+        }
+        long time = System.nanoTime() - start;
+        if (found != hashes.size() * 15) {
+            throw new IllegalStateException(name + " 查找结果错误");
+        }
+        System.out.println(StrFormatter.format("{} {} 个 约 {} KB, 查找 {} ns/个",
+                name, hashes.size(), (after - before) / 1024, time / 10 / hashes.size()));
+    }
+}
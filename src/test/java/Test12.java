@@ -0,0 +1,75 @@
+import ani.rss.entity.Ani;
+import ani.rss.entity.Config;
+import ani.rss.entity.TorrentsInfo;
+import ani.rss.util.*;
+import cn.hutool.core.io.FileUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 等待下载队列: 开启同时下载数量限制后按订阅优先级依次添加
+ */
+public class Test12 {
+    static final int EPISODE_COUNT = 3;
+
+    public static void main(String[] args) {
+        File downloadDir = FileUtil.mkdir(FileUtil.file(FileUtil.getTmpDir(), "ani-rss-test12"));
+        Config config = ConfigUtil.CONFIG;
+        config.setDownloadPath(downloadDir.getAbsolutePath())
+                .setRename(false)
+                .setWatchErrorTorrent(false)
+                .setDownloadCount(2)
+                .setDownloadQueueOrder(DownloadQueueUtil.PRIORITY);
+
+        Runnable restore = TestEnv.protectConfig();
+        StubDownload stub = new StubDownload(0);
+        TorrentUtil.setBaseDownload(stub);
+
+        List<Ani> aniList = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Ani ani = Ani.bulidAni()
+                    .setId("test12-" + i)
+                    .setTitle("ani-rss-test12-" + i)
+                    .setType("dmhy")
+                    .setPriority(i)
+                    .setCurrentEpisodeNumber(EPISODE_COUNT);
+            aniList.add(ani);
+            AniUtil.ANI_LIST.add(ani);
+        }
+
+        try {
+            // 列表中靠前的订阅不再占满所有空位
+            for (int i = 0; i < aniList.size(); i++) {
+                Ani ani = aniList.get(i);
+                TorrentUtil.downloadAni(ani, TestEnv.items(ani, 0x12000 + i * 100, EPISODE_COUNT));
+            }
+            TestEnv.check(stub.added.isEmpty(), "未经队列直接添加 {}", stub.added);
+            TestEnv.check(DownloadQueueUtil.size() == 9, "队列长度不正确 {}", DownloadQueueUtil.size());
+
+            List<String> order = new ArrayList<>();
+            while (DownloadQueueUtil.size() > 0) {
+                int before = stub.added.size();
+                TorrentUtil.downloadQueue();
+                TestEnv.check(stub.added.size() - before <= 2, "超过同时下载数量限制");
+                order.addAll(stub.added.subList(before, stub.added.size()));
+                // 模拟下载完成
+                stub.torrents.values().forEach(it -> it.setState(TorrentsInfo.State.pausedUP));
+                TorrentSnapshot.invalidate();
+            }
+            System.out.println(order);
+            TestEnv.check(order.size() == 9, "添加数量不正确 {}", order.size());
+            TestEnv.check(order.get(0).startsWith("ani-rss-test12-2 S01E01"), "未按优先级添加 {}", order);
+            TestEnv.check(order.get(8).startsWith("ani-rss-test12-0 S01E03"), "未按优先级添加 {}", order);
+            System.out.println(DownloadQueueUtil.stats());
+        } finally {
+            for (Ani ani : aniList) {
+                AniUtil.ANI_LIST.remove(ani);
+                FileUtil.del(TorrentUtil.getTorrentDir(ani).getParentFile());
+            }
+            FileUtil.del(downloadDir);
+            restore.run();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+import ani.rss.download.Aria2;
+import ani.rss.download.Transmission;
+import ani.rss.download.qBittorrent;
+import ani.rss.entity.TorrentsInfo;
+import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.util.StrUtil;
+import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 流式解析下载工具任务列表的性能对比
+ * <p>
+ * 生成 5000 个任务的响应 (其中 1/10 带 ani-rss 标签), 分别使用 JsonObject 树解析与 JsonReader 流式解析
+ */
+public class Test13 {
+    static final int TORRENT_COUNT = 5000;
+    static final int ROUNDS = 30;
+    static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    public static void main(String[] args) throws Exception {
+        String maindata = qBittorrentMaindata();
+        String torrentGet = transmissionTorrentGet();
+        String tellStopped = aria2TellStopped();
+        System.out.println(StrFormatter.format("qBittorrent {} KB, Transmission {} KB, Aria2 {} KB",
+                maindata.length() / 1024, torrentGet.length() / 1024, tellStopped.length() / 1024));
+
+        benchmark("qBittorrent", () -> {
+            List<TorrentsInfo> list = new ArrayList<>();
+            JsonObject jsonObject = GSON.fromJson(maindata, JsonObject.class);
+            for (Map.Entry<String, JsonElement> entry : jsonObject.getAsJsonObject("torrents").entrySet()) {
+                JsonObject torrent = entry.getValue().getAsJsonObject();
+                torrent.addProperty("hash", entry.getKey());
+                if (StrUtil.split(torrent.get("tags").getAsString(), ",", true, true).contains("ani-rss")) {
+                    list.add(GSON.fromJson(torrent, TorrentsInfo.class));
+                }
+            }
+            return list.size();
+        }, () -> {
+            Map<String, TorrentsInfo> torrentMap = new LinkedHashMap<>();
+            try {
+                qBittorrent.readMaindata(new JsonReader(new StringReader(maindata)), torrentMap);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            return (int) torrentMap.values().stream()
+                    .filter(it -> StrUtil.split(it.getTags(), ",", true, true).contains("ani-rss"))
+                    .count();
+        });
+
+        benchmark("Transmission", () -> {
+            int n = 0;
+            JsonObject jsonObject = GSON.fromJson(torrentGet, JsonObject.class);
+            for (JsonElement jsonElement : jsonObject.getAsJsonObject("arguments").getAsJsonArray("torrents")) {
+                JsonObject torrent = jsonElement.getAsJsonObject();
+                List<String> tags = new ArrayList<>();
+                torrent.getAsJsonArray("labels").forEach(it -> tags.add(it.getAsString()));
+                if (tags.contains("ani-rss")) {
+                    new TorrentsInfo()
+                            .setName(torrent.get("name").getAsString())
+                            .setHash(torrent.get("hashString").getAsString())
+                            .setId(torrent.get("id").getAsString())
+                            .setDownloadDir(torrent.get("downloadDir").getAsString());
+                    n++;
+                }
+            }
+            return n;
+        }, () -> {
+            try {
+                return Transmission.readTorrents(new JsonReader(new StringReader(torrentGet))).size();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        benchmark("Aria2", () -> {
+            int n = 0;
+            JsonObject jsonObject = GSON.fromJson(tellStopped, JsonObject.class);
+            for (JsonElement jsonElement : jsonObject.getAsJsonArray("result")) {
+                JsonObject torrent = jsonElement.getAsJsonObject();
+                String name = torrent.getAsJsonObject("bittorrent").getAsJsonObject("info").get("name").getAsString();
+                new TorrentsInfo()
+                        .setName(name)
+                        .setId(torrent.get("gid").getAsString())
+                        .setHash(torrent.get("infoHash").getAsString())
+                        .setDownloadDir(torrent.get("dir").getAsString());
+                n++;
+            }
+            return n;
+        }, () -> {
+            try {
+                return Aria2.readResult(new JsonReader(new StringReader(tellStopped))).size();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    static void benchmark(String name, Supplier<Integer> tree, Supplier<Integer> stream) {
+        int treeCount = tree.get();
+        int streamCount = stream.get();
+        if (treeCount != streamCount) {
+            throw new IllegalStateException(StrFormatter.format("{} 解析结果不一致 {} {}", name, treeCount, streamCount));
+        }
+        // 预热
+        for (int i = 0; i < ROUNDS; i++) {
+            tree.get();
+            stream.get();
+        }
+        long[] treeResult = measure(tree);
+        long[] streamResult = measure(stream);
+        System.out.println(StrFormatter.format("{} 任务 {} 个: JsonObject {} ms {} MB, JsonReader {} ms {} MB",
+                name, streamCount,
+                String.format("%.1f", treeResult[0] / ROUNDS / 1000000.0), treeResult[1] / ROUNDS / 1024 / 1024,
+                String.format("%.1f", streamResult[0] / ROUNDS / 1000000.0), streamResult[1] / ROUNDS / 1024 / 1024));
+    }
+
+    /**
+     * @return 耗时 (纳秒), 分配内存 (字节)
+     */
+    static long[] measure(Supplier<Integer> supplier) {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            supplier.get();
+        }
+        return new long[]{System.nanoTime() - start, threadMXBean.getThreadAllocatedBytes(threadId) - bytes};
+    }
+
+    static String hash(int i) {
+        return StrUtil.padPre(Integer.toHexString(i), 40, '0');
+    }
+
+    static String tags(int i) {
+        return i % 10 == 0 ? "ani-rss" : "other, tag" + (i % 7);
+    }
+
+    static String qBittorrentMaindata() {
+        JsonObject torrents = new JsonObject();
+        for (int i = 0; i < TORRENT_COUNT; i++) {
+            JsonObject torrent = new JsonObject();
+            torrent.addProperty("added_on", 1700000000 + i);
+            torrent.addProperty("amount_left", 0);
+            torrent.addProperty("category", "");
+            torrent.addProperty("completed", 1024L * 1024 * 512);
+            torrent.addProperty("content_path", "/downloads/torrent-" + i + "/video.mkv");
+            torrent.addProperty("dlspeed", 0);
+            torrent.addProperty("downloaded", 1024L * 1024 * 512);
+            torrent.addProperty("eta", 8640000);
+            torrent.addProperty("infohash_v1", hash(i));
+            torrent.addProperty("magnet_uri", "magnet:?xt=urn:btih:" + hash(i) + "&dn=torrent-" + i);
+            torrent.addProperty("name", "torrent-" + i);
+            torrent.addProperty("num_complete", 10);
+            torrent.addProperty("num_incomplete", 1);
+            torrent.addProperty("progress", 1);
+            torrent.addProperty("ratio", 1.2345);
+            torrent.addProperty("save_path", "/downloads/" + (i % 20));
+            torrent.addProperty("size", 1024L * 1024 * 512);
+            torrent.addProperty("state", i % 3 == 0 ? "pausedUP" : "downloading");
+            torrent.addProperty("tags", tags(i));
+            torrent.addProperty("tracker", "http://tracker.example.com/announce");
+            torrent.addProperty("upspeed", 0);
+            torrent.addProperty("uploaded", 1024L * 1024 * 600);
+            torrents.add(hash(i), torrent);
+        }
+        JsonObject maindata = new JsonObject();
+        maindata.addProperty("full_update", true);
+        maindata.addProperty("rid", 1);
+        maindata.add("server_state", new JsonObject());
+        maindata.add("torrents", torrents);
+        return GSON.toJson(maindata);
+    }
+
+    static String transmissionTorrentGet() {
+        JsonArray torrents = new JsonArray();
+        for (int i = 0; i < TORRENT_COUNT; i++) {
+            JsonObject torrent = new JsonObject();
+            torrent.addProperty("downloadDir", "/downloads/" + (i % 20));
+            torrent.addProperty("hashString", hash(i));
+            torrent.addProperty("id", i + 1);
+            torrent.addProperty("isFinished", i % 3 == 0);
+            JsonArray labels = new JsonArray();
+            StrUtil.split(tags(i), ",", true, true).forEach(labels::add);
+            torrent.add("labels", labels);
+            torrent.addProperty("name", "torrent-" + i);
+            torrents.add(torrent);
+        }
+        JsonObject arguments = new JsonObject();
+        arguments.add("torrents", torrents);
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.add("arguments", arguments);
+        jsonObject.addProperty("result", "success");
+        return GSON.toJson(jsonObject);
+    }
+
+    static String aria2TellStopped() {
+        JsonArray result = new JsonArray();
+        for (int i = 0; i < TORRENT_COUNT; i++) {
+            JsonArray announceList = new JsonArray();
+            for (int t = 0; t < 5; t++) {
+                JsonArray tier = new JsonArray();
+                tier.add("http://tracker" + t + ".example.com/announce");
+                announceList.add(tier);
+            }
+            JsonObject info = new JsonObject();
+            info.addProperty("name", "torrent-" + i);
+            JsonObject bittorrent = new JsonObject();
+            bittorrent.add("announceList", announceList);
+            bittorrent.add("info", info);
+            bittorrent.addProperty("mode", "single");
+
+            JsonObject torrent = new JsonObject();
+            torrent.add("bittorrent", bittorrent);
+            torrent.addProperty("dir", "/downloads/" + (i % 20));
+            torrent.addProperty("gid", StrUtil.padPre(Integer.toHexString(i), 16, '0'));
+            torrent.addProperty("infoHash", hash(i));
+            torrent.addProperty("status", "complete");
+            result.add(torrent);
+        }
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty("id", "qwer");
+        jsonObject.addProperty("jsonrpc", "2.0");
+        jsonObject.add("result", result);
+        return GSON.toJson(jsonObject);
+    }
+}
@@ -0,0 +1,138 @@
+import ani.rss.entity.Ani;
+import ani.rss.util.ConfigUtil;
+import ani.rss.util.FilterEngine;
+import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.ReUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 排除/匹配规则 FilterEngine 与旧版逐条 ReUtil.contains 对比, 先校验结果一致再对比耗时
+ */
+public class Test14 {
+    static final String CHARS = "abcdehrsx 简繁日[]-0123456789";
+
+    static final List<String> CORPUS = List.of(
+            "[ANi] 关于我转生变成史莱姆这档事 第三季 - 65 [1080P][Baha][WEB-DL][AAC AVC][CHT].mp4",
+            "[LoliHouse] 物语系列 / Monogatari Series - 03 [WebRip 1080p HEVC-10bit AAC][简繁内封字幕]",
+            "[喵萌奶茶屋&LoliHouse] 葬送的芙莉莲 / Sousou no Frieren - 28 [WebRip 1080p HEVC-10bit AAC][简繁日内封字幕]",
+            "[北宇治字幕组] 吹响吧！上低音号 第三季 [05v2][WebRip][1080p][HEVC_AAC][简日内嵌]",
+            "[Nekomoe kissaten&LoliHouse] Oshi no Ko - 11 [WebRip 1080p HEVC-10bit AAC ASSx2]",
+            "[SweetSub] 间谍过家家 / SPY×FAMILY [37END][WebRip][1080P][AVC 8bit][简日双语]",
+            "[DBD-Raws][我推的孩子][01-11TV全集][1080P][BDRip][HEVC-10bit][简繁日双语外挂][FLAC][MKV]",
+            "[Lilith-Raws] Kage no Jitsuryokusha ni Naritakute! S02 - 12 [Baha][WEB-DL][1080p][AVC AAC][CHT][MP4]",
+            ""
+    );
+
+    public static void main(String[] args) {
+        List<String> titles = new ArrayList<>(CORPUS);
+        for (int i = 0; i < 20000; i++) {
+            titles.add(RandomUtil.randomString(CHARS, RandomUtil.randomInt(0, 32)));
+        }
+
+        List<List<List<String>>> cases = new ArrayList<>();
+        // 订阅排除, 全局排除, 匹配
+        cases.add(List.of(List.of(), List.of(), List.of()));
+        cases.add(List.of(List.of("720", "繁"), List.of("\\d-\\d", "合集"), List.of()));
+        cases.add(List.of(List.of("he", "she", "his", "hers"), List.of(), List.of("簡", "简")));
+        cases.add(List.of(List.of("aab", "ab", "b"), List.of("abcd"), List.of("bc", "c[de]")));
+        cases.add(List.of(List.of(""), List.of(), List.of()));
+        cases.add(List.of(List.of(), List.of(), List.of("")));
+        cases.add(List.of(List.of("(a)\\1"), List.of("(?<x>s)"), List.of("(?<x>r)", "1080", "x")));
+        cases.add(List.of(List.of("简繁"), List.of("简繁"), List.of("简繁", "日")));
+        for (int i = 0; i < 200; i++) {
+            cases.add(List.of(randomRules(), randomRules(), randomRules()));
+        }
+
+        int n = 0;
+        for (List<List<String>> rules : cases) {
+            for (boolean globalExclude : List.of(true, false)) {
+                ConfigUtil.CONFIG.setExclude(new ArrayList<>(rules.get(1)));
+                FilterEngine.clear();
+                Ani ani = new Ani()
+                        .setId("test14-" + n++)
+                        .setExclude(new ArrayList<>(rules.get(0)))
+                        .setMatch(new ArrayList<>(rules.get(2)))
+                        .setGlobalExclude(globalExclude);
+                Predicate<String> expected = regex(ani, rules.get(1));
+                FilterEngine filterEngine = FilterEngine.of(ani);
+                for (String title : titles) {
+                    if (expected.test(title) != filterEngine.accept(title)) {
+                        throw new IllegalStateException(StrFormatter.format("结果不一致 [{}] {} {}", title, rules, globalExclude));
+                    }
+                }
+            }
+        }
+        System.out.println(StrFormatter.format("{} 组规则 {} 个标题结果一致", n, titles.size()));
+
+        List<String> exclude = List.of("720", "繁体", "CHT", "Baha", "BIG5", "合集", "\\d+-\\d+", "[Rr]aw");
+        List<String> globalExclude = List.of("简繁日", "外挂", "MKV", "ASSx2");
+        List<String> match = List.of("简", "CHS", "1080[Pp]");
+        ConfigUtil.CONFIG.setExclude(new ArrayList<>(globalExclude));
+        FilterEngine.clear();
+        Ani ani = new Ani()
+                .setId("test14-bench")
+                .setExclude(new ArrayList<>(exclude))
+                .setMatch(new ArrayList<>(match))
+                .setGlobalExclude(true);
+        bench("regex ", CORPUS, regex(ani, globalExclude));
+        FilterEngine filterEngine = FilterEngine.of(ani);
+        bench("engine", CORPUS, filterEngine::accept);
+    }
+
+    static List<String> randomRules() {
+        List<String> rules = new ArrayList<>();
+        int size = RandomUtil.randomInt(0, 5);
+        for (int i = 0; i < size; i++) {
+            String rule = RandomUtil.randomString(CHARS.replace("[", "").replace("]", "").replace("-", ""), RandomUtil.randomInt(1, 4));
+            if (RandomUtil.randomInt(4) == 0) {
+                rule = rule + ".?";
+            }
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    static void bench(String name, List<String> titles, Predicate<String> predicate) {
+        for (int i = 0; i < 20000; i++) {
+            titles.forEach(predicate::test);
+        }
+        int n = 100000;
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            titles.forEach(predicate::test);
+        }
+        long time = System.nanoTime() - start;
+        System.out.println(StrFormatter.format("{} {} ns/title", name, time / n / titles.size()));
+    }
+
+    /**
+     * 旧版
+     */
+    static Predicate<String> regex(Ani ani, List<String> globalExcludeList) {
+        List<String> exclude = ani.getExclude();
+        List<String> match = ani.getMatch();
+        return title -> {
+            if (exclude.stream().anyMatch(s -> ReUtil.contains(s, title))) {
+                return false;
+            }
+            if (ani.getGlobalExclude()) {
+                if (globalExcludeList.stream().anyMatch(s -> ReUtil.contains(s, title))) {
+                    return false;
+                }
+            }
+            if (match.isEmpty()) {
+                return true;
+            }
+            for (String string : match) {
+                if (ReUtil.contains(string, title)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+}
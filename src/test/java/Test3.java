@@ -1,3 +1,4 @@
+import ani.rss.util.EpisodeParser;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.util.ReUtil;
@@ -17,9 +18,7 @@ public class Test3 {
                 continue;
             }
             String name = file.getName();
-            String s = "(.*|\\[.*])( -? \\d+|\\[\\d+]|\\[\\d+.?[vV]\\d]|第\\d+[话話集]|\\[第?\\d+[话話集]]|\\[\\d+.?END]|[Ee][Pp]?\\d+)(.*)";
-            String e = ReUtil.get(s, name, 2);
-            String episode = ReUtil.get("\\d+", e, 0);
+            String episode = ReUtil.get("\\d+", EpisodeParser.get(name), 0);
             if (StrUtil.isBlank(episode)) {
                 episode = ReUtil.get("\\[(\\d{2})\\]", name, 1).trim();
             }
@@ -36,7 +35,7 @@ public class Test3 {
             if (List.of("mp4", "mkv", "avi", "wmv").contains(ext.toLowerCase())) {
                 newPath = newPath + "." + ext;
             } else if (List.of("ass", "ssa", "sub", "srt", "lyc").contains(ext.toLowerCase())) {
-                s = FileUtil.extName(FileUtil.mainName(name));
+                String s = FileUtil.extName(FileUtil.mainName(name));
                 if (StrUtil.isNotBlank(s)) {
                     newPath = newPath + "." + s;
                 }
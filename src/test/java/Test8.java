@@ -0,0 +1,185 @@
+import ani.rss.entity.Item;
+import ani.rss.util.RssUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.XmlUtil;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * rss 解析对比 DOM / StAX
+ * <p>
+ * 参数为录制的 rss 文件路径, 不传则使用生成的 mikan 与 nyaa rss
+ */
+public class Test8 {
+    public static void main(String[] args) {
+        List<String> feeds = new ArrayList<>();
+        for (String arg : args) {
+            feeds.add(FileUtil.readUtf8String(arg));
+        }
+        if (feeds.isEmpty()) {
+            feeds.add(mikan(200));
+            feeds.add(nyaa(75));
+        }
+
+        for (String xml : feeds) {
+            List<Item> dom = dom(xml);
+            List<Item> stax = RssUtil.parse(xml, it -> true).getItems();
+            if (!dom.equals(stax)) {
+                throw new IllegalStateException("解析结果不一致");
+            }
+            System.out.println(StrFormatter.format("{} KB, {} 条", xml.length() / 1024, stax.size()));
+            bench("DOM ", xml, Test8::dom);
+            bench("StAX", xml, it -> RssUtil.parse(it, s -> true).getItems());
+            bench("StAX 排除720", xml, it -> RssUtil.parse(it, s -> !s.contains("720")).getItems());
+        }
+    }
+
+    static void bench(String name, String xml, Function<String, List<Item>> fun) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        for (int i = 0; i < 200; i++) {
+            fun.apply(xml);
+        }
+        int n = 1000;
+        long bytes = bean.getThreadAllocatedBytes(id);
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            fun.apply(xml);
+        }
+        long time = System.nanoTime() - start;
+        bytes = bean.getThreadAllocatedBytes(id) - bytes;
+        System.out.println(StrFormatter.format("  {} {} us/op, {} KB/op", name, time / n / 1000, bytes / n / 1024));
+    }
+
+    static String mikan(int n) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"utf-8\"?><rss version=\"2.0\"><channel>")
+                .append("<title>Mikan Project - 关于我转生变成史莱姆这档事 第三季</title>")
+                .append("<link>http://mikanani.me/RSS/Bangumi?bangumiId=3341&amp;subgroupid=583</link>")
+                .append("<description>Mikan Project - 关于我转生变成史莱姆这档事 第三季</description>");
+        for (int i = 0; i < n; i++) {
+            String hash = StrUtil.padPre(Integer.toHexString(i), 40, '0');
+            String res = i % 3 == 0 ? "720P" : "1080P";
+            sb.append("<item>")
+                    .append("<guid isPermaLink=\"false\">[ANi] 关于我转生变成史莱姆这档事 第三季 - ").append(i).append(" [").append(res).append("][Baha][WEB-DL][AAC AVC][CHT][MP4]</guid>")
+                    .append("<link>https://mikanani.me/Home/Episode/").append(hash).append("</link>")
+                    .append("<title>[ANi] 关于我转生变成史莱姆这档事 第三季 - ").append(i).append(" [").append(res).append("][Baha][WEB-DL][AAC AVC][CHT][MP4]</title>")
+                    .append("<description>[ANi] 关于我转生变成史莱姆这档事 第三季 - ").append(i).append("[351.6 MB]</description>")
+                    .append("<torrent xmlns=\"https://mikanani.me/0.1/\"><link>https://mikanani.me/Home/Episode/").append(hash)
+                    .append("</link><contentLength>368679744</contentLength><pubDate>2024-07-12T23:31:00</pubDate></torrent>")
+                    .append("<enclosure type=\"application/x-bittorrent\" length=\"368679744\" url=\"https://mikanani.me/Download/20240712/")
+                    .append(hash).append(".torrent\" />")
+                    .append("</item>");
+        }
+        return sb.append("</channel></rss>").toString();
+    }
+
+    static String nyaa(int n) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<rss xmlns:atom=\"http://www.w3.org/2005/Atom\" xmlns:nyaa=\"https://nyaa.si/xmlns/nyaa\" version=\"2.0\"><channel>")
+                .append("<title>Nyaa - \"ANi\" - Torrent File RSS</title><description>RSS Feed for \"ANi\"</description>")
+                .append("<link>https://nyaa.si/</link><atom:link href=\"https://nyaa.si/?page=rss\" rel=\"self\" type=\"application/rss+xml\" />");
+        for (int i = 0; i < n; i++) {
+            String hash = StrUtil.padPre(Integer.toHexString(i), 40, '0');
+            sb.append("<item>")
+                    .append("<title>[ANi] Tensei Shitara Slime Datta Ken S3 - ").append(i).append(" [1080P][Baha][WEB-DL][AAC AVC][CHT][MP4]</title>")
+                    .append("<link>https://nyaa.si/download/").append(1800000 + i).append(".torrent</link>")
+                    .append("<guid isPermaLink=\"true\">https://nyaa.si/view/").append(1800000 + i).append("</guid>")
+                    .append("<pubDate>Fri, 12 Jul 2024 15:32:10 -0000</pubDate>")
+                    .append("<nyaa:seeders>120</nyaa:seeders><nyaa:leechers>3</nyaa:leechers><nyaa:downloads>2000</nyaa:downloads>")
+                    .append("<nyaa:infoHash>").append(hash).append("</nyaa:infoHash>")
+                    .append("<nyaa:categoryId>1_3</nyaa:categoryId><nyaa:category>Anime - Non-English-translated</nyaa:category>")
+                    .append("<nyaa:size>351.6 MiB</nyaa:size><nyaa:comments>0</nyaa:comments><nyaa:trusted>No</nyaa:trusted><nyaa:remake>No</nyaa:remake>")
+                    .append("<description><![CDATA[<a href=\"https://nyaa.si/view/").append(1800000 + i).append("\">#").append(1800000 + i).append("</a>]]></description>")
+                    .append("</item>");
+        }
+        return sb.append("</channel></rss>").toString();
+    }
+
+    /**
+     * 旧版 DOM 解析
+     */
+    static List<Item> dom(String xml) {
+        List<Item> items = new ArrayList<>();
+        Document document = XmlUtil.readXML(xml);
+        Node channel = document.getElementsByTagName("channel").item(0);
+        NodeList childNodes = channel.getChildNodes();
+        for (int i = childNodes.getLength() - 1; i >= 0; i--) {
+            Node item = childNodes.item(i);
+            if (!item.getNodeName().equals("item")) {
+                continue;
+            }
+            String itemTitle = "";
+            String torrent = "";
+            String length = "";
+            String infoHash = "";
+            String size = "0MB";
+            NodeList itemChildNodes = item.getChildNodes();
+            for (int j = 0; j < itemChildNodes.getLength(); j++) {
+                Node itemChild = itemChildNodes.item(j);
+                String itemChildNodeName = itemChild.getNodeName();
+                if (itemChildNodeName.equals("title")) {
+                    itemTitle = itemChild.getTextContent();
+                }
+                if (itemChildNodeName.equals("enclosure")) {
+                    NamedNodeMap attributes = itemChild.getAttributes();
+                    String url = attributes.getNamedItem("url").getNodeValue();
+                    length = attributes.getNamedItem("length").getNodeValue();
+                    if (Long.parseLong(length) > 1) {
+                        torrent = url;
+                        infoHash = FileUtil.mainName(torrent);
+                    }
+                    String magnetReg = "^magnet\\:\\?xt=urn:btih\\:(\\w+)";
+                    if (ReUtil.contains(magnetReg, url)) {
+                        torrent = url;
+                        infoHash = ReUtil.get(magnetReg, url, 1);
+                    }
+                }
+                if (itemChildNodeName.equals("nyaa:infoHash")) {
+                    infoHash = itemChild.getTextContent();
+                }
+                if (itemChildNodeName.equals("nyaa:size")) {
+                    size = itemChild.getTextContent();
+                    size = ReUtil.get("[\\d\\.]+", size, 0) + "MB";
+                }
+                if (itemChildNodeName.equals("link")) {
+                    String link = itemChild.getTextContent();
+                    if (!link.endsWith(".torrent")) {
+                        continue;
+                    }
+                    torrent = link;
+                }
+            }
+            if (StrUtil.isBlank(torrent)) {
+                continue;
+            }
+            if (StrUtil.isNotBlank(length) && size.equals("0MB")) {
+                Double l = Long.parseLong(length) / 1024.0 / 1024;
+                size = NumberUtil.decimalFormat("0.00", l) + "MB";
+            }
+            if (StrUtil.isNotBlank(infoHash)) {
+                infoHash = infoHash.toLowerCase();
+            }
+            items.add(new Item()
+                    .setEpisode(1.0)
+                    .setTitle(itemTitle)
+                    .setReName(itemTitle)
+                    .setTorrent(torrent)
+                    .setInfoHash(infoHash)
+                    .setSize(size));
+        }
+        return items;
+    }
+}
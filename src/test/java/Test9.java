@@ -0,0 +1,97 @@
+import ani.rss.util.EpisodeParser;
+import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 集数解析 EpisodeParser 与旧版正则对比, 先校验结果一致再对比耗时
+ */
+public class Test9 {
+    static final String REG = "(.*|\\[.*])( -? \\d+(\\.5)?|\\[\\d+(\\.5)?]|\\[\\d+(\\.5)?.?[vV]\\d]|第\\d+(\\.5)?[话話集]|\\[第?\\d+(\\.5)?[话話集]]|\\[\\d+(\\.5)?.?END]|[Ee][Pp]?\\d+(\\.5)?)(.*)";
+
+    static final List<String> CORPUS = List.of(
+            "[ANi] 关于我转生变成史莱姆这档事 第三季 - 65.5 [1080P][Baha][WEB-DL][AAC AVC][CHT].mp4",
+            "[ANi] 关于我转生变成史莱姆这档事 第三季 - 65 [1080P][Baha][WEB-DL][AAC AVC][CHT].mp4",
+            "[LoliHouse] 物语系列 / Monogatari Series - 03 [WebRip 1080p HEVC-10bit AAC][简繁内封字幕]",
+            "[桜都字幕组] 无职转生Ⅱ ～到了异世界就拿出真本事～ / Mushoku Tensei S2 [05][1080p][简繁内封]",
+            "[喵萌奶茶屋&LoliHouse] 葬送的芙莉莲 / Sousou no Frieren - 28 [WebRip 1080p HEVC-10bit AAC][简繁日内封字幕]",
+            "[北宇治字幕组] 吹响吧！上低音号 第三季 [05v2][WebRip][1080p][HEVC_AAC][简日内嵌]",
+            "[北宇治字幕组] 吹响吧！上低音号 第三季 [05_v2][WebRip][1080p][HEVC_AAC][简日内嵌]",
+            "[猎户发布组] 海贼王 One Piece [第1108话][1080p][简体]",
+            "【幻樱字幕组】【4月新番】【迷宫饭 Dungeon Meshi】【第24话】【BIG5_MP4】【1920X1080】",
+            "[爱恋字幕社] 迷宫饭 第24話 [1080p][MP4][简中]",
+            "[Nekomoe kissaten&LoliHouse] Oshi no Ko - 11 [WebRip 1080p HEVC-10bit AAC ASSx2]",
+            "[SweetSub] 间谍过家家 / SPY×FAMILY [37END][WebRip][1080P][AVC 8bit][简日双语]",
+            "[SweetSub] 间谍过家家 / SPY×FAMILY [37 END][WebRip][1080P][AVC 8bit][简日双语]",
+            "[Sakurato] Dungeon Meshi EP24 [HEVC-10bit 1080p AAC][CHS&CHT]",
+            "[Sakurato] Dungeon Meshi E24 [HEVC-10bit 1080p AAC][CHS&CHT]",
+            "[Sakurato] Dungeon Meshi ep24.5 [HEVC-10bit 1080p AAC][CHS&CHT]",
+            "[GJ.Y] 我推的孩子 第二季 / Oshi no Ko 2nd Season - 01 (B-Global 1920x1080 HEVC AAC MKV)",
+            "[DBD-Raws][我推的孩子][01-11TV全集][1080P][BDRip][HEVC-10bit][简繁日双语外挂][FLAC][MKV]",
+            "[Lilith-Raws] Kage no Jitsuryokusha ni Naritakute! S02 - 12 [Baha][WEB-DL][1080p][AVC AAC][CHT][MP4]",
+            "[ANi] 不時輕聲地以俄語遮羞的鄰座艾莉同學 - 01 [1080P][Baha][WEB-DL][AAC AVC][CHT].mp4",
+            "[ANi] 无剧集标题 [1080P][Baha][WEB-DL][AAC AVC][CHT].mp4",
+            "[LoliHouse] Title [第05.5话][1080p]",
+            "[LoliHouse] Title 第05.5集 [1080p]",
+            "[LoliHouse] Title [05.5v2][1080p]",
+            "[LoliHouse] Title [05.5END][1080p]",
+            "[LoliHouse] Title  05 [1080p]",
+            "[LoliHouse] Title - 05.55 [1080p]",
+            "",
+            " - 1",
+            "[1]",
+            "EP"
+    );
+
+    public static void main(String[] args) {
+        List<String> titles = new ArrayList<>(CORPUS);
+        // 随机标题, 字符集中包含所有格式涉及的字符
+        for (int i = 0; i < 200000; i++) {
+            titles.add(RandomUtil.randomString(" -[]0123456789.5vVEeNDPp第话話集a\n", RandomUtil.randomInt(0, 24)));
+        }
+        for (String title : titles) {
+            String expected = regex(title);
+            String actual = EpisodeParser.get(title);
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException(StrFormatter.format("结果不一致 [{}] regex: {} parser: {}", title, expected, actual));
+            }
+        }
+        System.out.println(StrFormatter.format("{} 个标题结果一致", titles.size()));
+
+        List<String> bench = new ArrayList<>(CORPUS);
+        // 长标题, 旧版正则回溯严重
+        bench.add(StrUtil.repeat("[LoliHouse] 超长标题 / Very Long Release Title 1080p HEVC-10bit AAC ", 20) + "- 12 [简繁内封字幕]");
+        bench.add(StrUtil.repeat("[1080p] [HEVC] [AAC] ", 40));
+        bench("regex ", bench, Test9::regex);
+        bench("parser", bench, EpisodeParser::get);
+    }
+
+    static void bench(String name, List<String> titles, Function<String, String> fun) {
+        for (int i = 0; i < 50; i++) {
+            titles.forEach(fun::apply);
+        }
+        int n = 200;
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            titles.forEach(fun::apply);
+        }
+        long time = System.nanoTime() - start;
+        System.out.println(StrFormatter.format("{} {} ns/title", name, time / n / titles.size()));
+    }
+
+    /**
+     * 旧版
+     */
+    static String regex(String title) {
+        String e = ReUtil.get(REG, title, 2);
+        if (StrUtil.isBlank(e)) {
+            return "";
+        }
+        return StrUtil.nullToEmpty(ReUtil.get("\\d+(\\.5)?", e, 0));
+    }
+}
@@ -0,0 +1,89 @@
+import ani.rss.entity.Ani;
+import ani.rss.entity.Item;
+import ani.rss.util.ConfigUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.util.StrUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 下载相关测试的公共方法
+ */
+public class TestEnv {
+
+    /**
+     * 测试会写入的配置文件
+     */
+    static final List<String> FILES = List.of("ani.json", "seen.json", "history.jsonl", "rss.json");
+
+    /**
+     * 备份配置目录中会被测试写入的文件
+     *
+     * @return 恢复备份, 测试前不存在的文件与目录会被删除
+     */
+    static Runnable protectConfig() {
+        File configDir = ConfigUtil.getConfigDir();
+        boolean configExists = configDir.exists();
+        File torrents = new File(configDir, "torrents");
+        boolean torrentsExists = torrents.exists();
+        Map<File, byte[]> backup = new LinkedHashMap<>();
+        for (String name : FILES) {
+            File file = new File(configDir, name);
+            backup.put(file, file.exists() ? FileUtil.readBytes(file) : null);
+        }
+        return () -> {
+            if (!configExists) {
+                FileUtil.del(configDir);
+                return;
+            }
+            if (!torrentsExists) {
+                FileUtil.del(torrents);
+            }
+            backup.forEach((file, bytes) -> {
+                if (Objects.isNull(bytes)) {
+                    FileUtil.del(file);
+                    return;
+                }
+                FileUtil.writeBytes(bytes, file);
+            });
+        };
+    }
+
+    /**
+     * 生成订阅的条目
+     *
+     * @param ani
+     * @param hashBase infoHash 起始值, 各订阅不能重复
+     * @param count    集数
+     * @return
+     */
+    static List<Item> items(Ani ani, int hashBase, int count) {
+        List<Item> items = new ArrayList<>();
+        for (int e = 1; e <= count; e++) {
+            String infoHash = StrUtil.padPre(Integer.toHexString(hashBase + e), 40, '0');
+            String reName = StrFormatter.format("{} S01E{}", ani.getTitle(), String.format("%02d", e));
+            items.add(new Item()
+                    .setTitle(reName)
+                    .setReName(reName)
+                    .setEpisode((double) e)
+                    .setInfoHash(infoHash)
+                    .setTorrent("magnet:?xt=urn:btih:" + infoHash)
+                    .setSize("0MB")
+                    .setMaster(true)
+                    .setSubgroup("test"));
+        }
+        return items;
+    }
+
+    static void check(boolean b, String template, Object... params) {
+        if (!b) {
+            throw new IllegalStateException(StrFormatter.format(template, params));
+        }
+    }
+}